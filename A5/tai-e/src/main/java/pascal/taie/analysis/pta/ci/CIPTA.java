@@ -22,11 +22,20 @@
 
 package pascal.taie.analysis.pta.ci;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
 import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
 import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.MahjongModel;
+import pascal.taie.analysis.pta.core.heap.TypeBasedModel;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.config.ConfigException;
+
+import java.nio.file.Path;
 
 /**
  * Context-insensitive pointer analysis.
@@ -35,17 +44,69 @@ public class CIPTA extends ProgramAnalysis {
 
     public static final String ID = "cipta";
 
+    private static final Logger logger = LogManager.getLogger(CIPTA.class);
+
     public CIPTA(AnalysisConfig config) {
         super(config);
     }
 
     @Override
     public PointerAnalysisResult analyze() {
-        HeapModel heapModel = new AllocationSiteBasedModel(getOptions());
-        Solver solver = new Solver(heapModel);
+        AnalysisOptions options = getOptions();
+        HeapModel heapModel = getHeapModel(options);
+        if (options.getBooleanOrDefault("demand-driven", false)) {
+            int budget = options.get("demand-budget") != null ?
+                    options.getInt("demand-budget") :
+                    DemandDrivenPTA.DEFAULT_BUDGET;
+            DemandDrivenPTA demandDrivenPTA = new DemandDrivenPTA(heapModel, budget);
+            new ResultProcessor(options).process(demandDrivenPTA);
+            return demandDrivenPTA;
+        }
+        boolean substituteVars = options.getBooleanOrDefault(
+                "var-substitution", true);
+        Checkpoint checkpoint = null;
+        long interval = 0;
+        if (options.get("checkpoint") != null) {
+            // the PFG of a snapshot depends on variable substitution
+            String tag = "heap-model=" + options.get("heap-model") +
+                    ";var-substitution=" + substituteVars +
+                    ";main=" + World.get().getMainMethod().getSignature();
+            checkpoint = new Checkpoint(
+                    Path.of(options.getString("checkpoint")), tag);
+            // interval is given in seconds
+            interval = options.get("checkpoint-interval") != null ?
+                    options.getInt("checkpoint-interval") * 1000L : 600_000L;
+        }
+        Solver solver = new Solver(heapModel, checkpoint, interval, substituteVars);
         solver.solve();
-        CIPTAResult result = solver.getResult();
-        new ResultProcessor(getOptions()).process(result);
+        CIPTAResult result = options.get("field-pts-cache-size") != null ?
+                solver.getResult(options.getInt("field-pts-cache-size")) :
+                solver.getResult();
+        new ResultProcessor(options).process(result);
+        logger.info("Field points-to cache: {} hits, {} misses",
+                result.getCacheHits(), result.getCacheMisses());
         return result;
     }
+
+    /**
+     * Creates the heap model specified by option "heap-model", i.e.,
+     * "allocation-site" (default), "type" or "mahjong".
+     */
+    private static HeapModel getHeapModel(AnalysisOptions options) {
+        String heapModel = options.get("heap-model") != null ?
+                options.getString("heap-model") : "allocation-site";
+        return switch (heapModel) {
+            case "allocation-site" -> new AllocationSiteBasedModel(options);
+            case "type" -> new TypeBasedModel(options);
+            case "mahjong" -> {
+                // Mahjong merges objects based on the result of
+                // allocation-site-based pre-analysis
+                Solver preSolver = new Solver(new AllocationSiteBasedModel(options));
+                preSolver.solve();
+                yield new MahjongModel(options, preSolver.getResult());
+            }
+            default -> throw new ConfigException(
+                    "Unexpected heap model: " + heapModel);
+        };
+    }
 }
@@ -31,13 +31,17 @@ import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
-import pascal.taie.util.collection.Maps;
 import pascal.taie.util.collection.Pair;
 import pascal.taie.util.collection.Sets;
 import pascal.taie.util.collection.Views;
 
+import java.util.AbstractSet;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -50,16 +54,47 @@ class CIPTAResult implements PointerAnalysisResult {
     private final CallGraph<Invoke, JMethod> callGraph;
 
     /**
-     * Points-to sets of field expressions, e.g., v.f.
+     * Default maximum number of cached points-to sets of field expressions.
      */
-    private final Map<Pair<Var, JField>, Set<Obj>> fieldPointsTo = Maps.newMap();
+    static final int DEFAULT_CACHE_SIZE = 10_000;
+
+    /**
+     * LRU cache of points-to sets of field expressions, e.g., v.f.
+     * The cached sets are views of the points-to sets of instance fields,
+     * thus each entry takes memory proportional to pt(v), not pt(v.f).
+     */
+    private final Map<Pair<Var, JField>, Set<Obj>> fieldPointsTo;
+
+    private long cacheHits;
+
+    private long cacheMisses;
 
     private Set<Obj> objects;
 
     CIPTAResult(PointerFlowGraph pointerFlowGraph,
                 CallGraph<Invoke, JMethod> callGraph) {
+        this(pointerFlowGraph, callGraph, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize maximum number of cached points-to sets
+     *                  of field expressions.
+     */
+    CIPTAResult(PointerFlowGraph pointerFlowGraph,
+                CallGraph<Invoke, JMethod> callGraph, int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException(
+                    "Cache size must be non-negative, given: " + cacheSize);
+        }
         this.pointerFlowGraph = pointerFlowGraph;
         this.callGraph = callGraph;
+        this.fieldPointsTo = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Pair<Var, JField>, Set<Obj>> eldest) {
+                return size() > cacheSize;
+            }
+        };
     }
 
     @Override
@@ -94,15 +129,20 @@ class CIPTAResult implements PointerAnalysisResult {
         if (field.isStatic()) {
             logger.warn("{} is not instance field", field);
         }
-        return fieldPointsTo.computeIfAbsent(new Pair<>(base, field), p -> {
-            Set<Obj> pts = Sets.newHybridSet();
-            getPointsToSet(base).forEach(o -> {
-                InstanceField fieldPtr = pointerFlowGraph
-                        .getInstanceField(o, field);
-                pts.addAll(fieldPtr.getPointsToSet().getObjects());
-            });
-            return pts;
-        });
+        Pair<Var, JField> key = new Pair<>(base, field);
+        Set<Obj> pts = fieldPointsTo.get(key);
+        if (pts != null) {
+            ++cacheHits;
+        } else {
+            ++cacheMisses;
+            pts = new UnionSet(getPointsToSet(base)
+                    .stream()
+                    .map(o -> pointerFlowGraph.getInstanceField(o, field)
+                            .getPointsToSet())
+                    .toList());
+            fieldPointsTo.put(key, pts);
+        }
+        return pts;
     }
 
     @Override
@@ -123,4 +163,114 @@ class CIPTAResult implements PointerAnalysisResult {
     PointerFlowGraph getPointerFlowGraph() {
         return pointerFlowGraph;
     }
+
+    /**
+     * @return the number of queries of field points-to sets
+     * that hit the cache.
+     */
+    long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * @return the number of queries of field points-to sets
+     * that miss the cache.
+     */
+    long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * Unmodifiable view of the union of multiple points-to sets.
+     * Nothing is copied into the view: each iteration yields the objects
+     * of the sets in turn, and skips the ones it has already yielded.
+     */
+    private static class UnionSet extends AbstractSet<Obj> {
+
+        private final List<PointsToSet> sets;
+
+        private int size = -1;
+
+        private UnionSet(List<PointsToSet> sets) {
+            this.sets = sets;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o instanceof Obj obj) {
+                for (PointsToSet set : sets) {
+                    if (set.contains(obj)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return sets.stream().allMatch(PointsToSet::isEmpty);
+        }
+
+        @Override
+        public int size() {
+            if (size < 0) {
+                int n = 0;
+                for (Iterator<Obj> it = iterator(); it.hasNext(); it.next()) {
+                    ++n;
+                }
+                size = n;
+            }
+            return size;
+        }
+
+        @Override
+        public Iterator<Obj> iterator() {
+            return new Iterator<>() {
+
+                private int setIndex = 0;
+
+                private Iterator<Obj> current = sets.isEmpty() ?
+                        null : sets.get(0).iterator();
+
+                /**
+                 * Objects yielded so far, or null if there is at most
+                 * one set, thus no duplicate objects.
+                 */
+                private final Set<Obj> yielded = sets.size() > 1 ?
+                        Sets.newSet() : null;
+
+                private Obj next = advance();
+
+                private Obj advance() {
+                    while (current != null) {
+                        while (current.hasNext()) {
+                            Obj obj = current.next();
+                            if (yielded == null || yielded.add(obj)) {
+                                return obj;
+                            }
+                        }
+                        current = ++setIndex < sets.size() ?
+                                sets.get(setIndex).iterator() : null;
+                    }
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Obj next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Obj obj = next;
+                    next = advance();
+                    return obj;
+                }
+            };
+        }
+    }
 }
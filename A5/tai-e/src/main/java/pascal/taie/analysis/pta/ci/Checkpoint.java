@@ -0,0 +1,483 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.analysis.graph.callgraph.CallKind;
+import pascal.taie.analysis.graph.callgraph.DefaultCallGraph;
+import pascal.taie.analysis.graph.callgraph.Edge;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.config.Options;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Saves the state of {@link Solver}, i.e., call graph, pointers and their
+ * points-to sets, pointer flow graph and pending work-list entries,
+ * to a binary snapshot, and restores the state from the snapshot.
+ * <p>
+ * Methods and fields are encoded by their signatures, variables and
+ * statements by their indexes in IR, and objects and pointers are
+ * interned, so that each of them is written only once. A snapshot can
+ * only be restored on the same program with the same heap model,
+ * which is checked via the tag of the snapshot. The tag also contains
+ * a fingerprint of the program, so that a snapshot is not restored after
+ * the program is changed.
+ */
+class Checkpoint {
+
+    private static final Logger logger = LogManager.getLogger(Checkpoint.class);
+
+    private static final int MAGIC = 0x54414945;
+
+    private static final int VERSION = 1;
+
+    /**
+     * Kinds of pointers.
+     */
+    private static final byte VAR = 0, STATIC_FIELD = 1,
+            INSTANCE_FIELD = 2, ARRAY_INDEX = 3;
+
+    private final Path file;
+
+    /**
+     * Identifies the configuration that produces the snapshot.
+     */
+    private final String tag;
+
+    /**
+     * @param tag identifies the configuration of the analysis. The
+     *            fingerprint of the program is appended to it.
+     */
+    Checkpoint(Path file, String tag) {
+        this.file = file;
+        this.tag = tag + ";program=" + getProgramFingerprint();
+    }
+
+    /**
+     * @return a fingerprint of the analyzed program, i.e., a hash of
+     * the Java version, and the paths, sizes and last modified times
+     * of the files in the class path.
+     */
+    private static String getProgramFingerprint() {
+        Options options = World.get().getOptions();
+        long hash = options.getJavaVersion();
+        String classPath = options.getClassPath();
+        if (classPath != null) {
+            for (String entry : classPath.split(File.pathSeparator)) {
+                Path path = Path.of(entry);
+                if (!Files.exists(path)) {
+                    continue;
+                }
+                try (Stream<Path> files = Files.walk(path)) {
+                    for (Path f : files.filter(Files::isRegularFile).sorted().toList()) {
+                        hash = 31 * hash + f.toString().hashCode();
+                        hash = 31 * hash + Files.size(f);
+                        hash = 31 * hash + Files.getLastModifiedTime(f).toMillis();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(
+                            "Failed to compute fingerprint of " + path, e);
+                }
+            }
+        }
+        return Long.toHexString(hash);
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Writes the state of the solver to the snapshot file.
+     * The snapshot is first written to a temporary file and then moved
+     * to the target file, so that an interrupted save does not destroy
+     * the previous snapshot.
+     */
+    void save(DefaultCallGraph callGraph, PointerFlowGraph pointerFlowGraph,
+              WorkList workList) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            Encoder encoder = new Encoder(out);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(tag);
+            // call graph
+            List<JMethod> entries = callGraph.entryMethods().toList();
+            out.writeInt(entries.size());
+            for (JMethod method : entries) {
+                encoder.writeMethod(method);
+            }
+            List<JMethod> reachable = callGraph.reachableMethods().toList();
+            out.writeInt(reachable.size());
+            for (JMethod method : reachable) {
+                encoder.writeMethod(method);
+            }
+            List<Edge<Invoke, JMethod>> edges = callGraph.edges().toList();
+            out.writeInt(edges.size());
+            for (Edge<Invoke, JMethod> edge : edges) {
+                out.writeByte(edge.getKind().ordinal());
+                encoder.writeStmt(edge.getCallSite());
+                encoder.writeMethod(edge.getCallee());
+            }
+            // pointers and points-to sets
+            Set<Pointer> pointers = pointerFlowGraph.getPointers();
+            out.writeInt(pointers.size());
+            for (Pointer pointer : pointers) {
+                encoder.writePointer(pointer);
+                encoder.writePointsToSet(pointer.getPointsToSet());
+            }
+            // pointer flow graph
+            Set<Pointer> sources = pointerFlowGraph.getSources();
+            out.writeInt(sources.size());
+            for (Pointer source : sources) {
+                encoder.writePointer(source);
+                Set<Pointer> succs = pointerFlowGraph.getSuccsOf(source);
+                out.writeInt(succs.size());
+                for (Pointer succ : succs) {
+                    encoder.writePointer(succ);
+                }
+            }
+            // work list
+            Collection<WorkList.Entry> workListEntries = workList.getEntries();
+            out.writeInt(workListEntries.size());
+            for (WorkList.Entry entry : workListEntries) {
+                encoder.writePointer(entry.pointer());
+                encoder.writePointsToSet(entry.pointsToSet());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save checkpoint to " + tmp, e);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save checkpoint to " + file, e);
+        }
+    }
+
+    /**
+     * Restores the state of the solver from the snapshot file.
+     *
+     * @return true if the state is restored, or false if the snapshot
+     * file does not exist or is produced by a different configuration.
+     */
+    boolean restore(HeapModel heapModel, DefaultCallGraph callGraph,
+                    PointerFlowGraph pointerFlowGraph, WorkList workList) {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warn("Checkpoint {} is in unknown format, ignored", file);
+                return false;
+            }
+            String savedTag = in.readUTF();
+            if (!savedTag.equals(tag)) {
+                logger.warn("Checkpoint {} is produced by a different" +
+                        " program or configuration ({}), ignored", file, savedTag);
+                return false;
+            }
+            Decoder decoder = new Decoder(in, heapModel, pointerFlowGraph);
+            // call graph
+            for (int i = in.readInt(); i > 0; --i) {
+                callGraph.addEntryMethod(decoder.readMethod());
+            }
+            for (int i = in.readInt(); i > 0; --i) {
+                callGraph.addReachableMethod(decoder.readMethod());
+            }
+            CallKind[] kinds = CallKind.values();
+            for (int i = in.readInt(); i > 0; --i) {
+                CallKind kind = kinds[in.readByte()];
+                Invoke callSite = (Invoke) decoder.readStmt();
+                callGraph.addEdge(new Edge<>(kind, callSite, decoder.readMethod()));
+            }
+            // pointers and points-to sets
+            for (int i = in.readInt(); i > 0; --i) {
+                Pointer pointer = decoder.readPointer();
+                decoder.readPointsToSet()
+                        .forEach(pointer.getPointsToSet()::addObject);
+            }
+            // the remaining variables may be representatives that are not
+            // in the pointers of the PFG, so they are not added to it
+            decoder.addVarPointers = false;
+            // pointer flow graph
+            for (int i = in.readInt(); i > 0; --i) {
+                Pointer source = decoder.readPointer();
+                for (int j = in.readInt(); j > 0; --j) {
+                    pointerFlowGraph.addEdge(source, decoder.readPointer());
+                }
+            }
+            // work list
+            for (int i = in.readInt(); i > 0; --i) {
+                workList.addEntry(decoder.readPointer(),
+                        decoder.readPointsToSet());
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to restore checkpoint from " + file, e);
+        }
+    }
+
+    /**
+     * Writes program elements to the snapshot. Each interned element
+     * is written as its id, followed by its content if it is written
+     * for the first time.
+     */
+    private static class Encoder {
+
+        private final DataOutputStream out;
+
+        private final Map<String, Integer> strings = Maps.newMap();
+
+        private final Map<Obj, Integer> objs = Maps.newMap();
+
+        private final Map<Pointer, Integer> pointers = Maps.newMap();
+
+        private Encoder(DataOutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * Writes the id of the element.
+         *
+         * @return true if the element is new, and its content
+         * should be written by the caller.
+         */
+        private <T> boolean writeId(Map<T, Integer> table, T element)
+                throws IOException {
+            Integer id = table.get(element);
+            if (id != null) {
+                out.writeInt(id);
+                return false;
+            } else {
+                out.writeInt(-1);
+                table.put(element, table.size());
+                return true;
+            }
+        }
+
+        private void writeString(String s) throws IOException {
+            if (writeId(strings, s)) {
+                out.writeUTF(s);
+            }
+        }
+
+        private void writeMethod(JMethod method) throws IOException {
+            writeString(method.getSignature());
+        }
+
+        private void writeStmt(Stmt stmt) throws IOException {
+            JMethod container = stmt instanceof New newStmt ?
+                    newStmt.getContainer() : ((Invoke) stmt).getContainer();
+            writeMethod(container);
+            out.writeInt(stmt.getIndex());
+        }
+
+        private void writeObj(Obj obj) throws IOException {
+            if (writeId(objs, obj)) {
+                writeStmt(getAllocSite(obj));
+            }
+        }
+
+        private void writePointer(Pointer pointer) throws IOException {
+            if (writeId(pointers, pointer)) {
+                if (pointer instanceof VarPtr varPtr) {
+                    out.writeByte(VAR);
+                    writeMethod(varPtr.getVar().getMethod());
+                    out.writeInt(varPtr.getVar().getIndex());
+                } else if (pointer instanceof StaticField staticField) {
+                    out.writeByte(STATIC_FIELD);
+                    writeString(staticField.getField().getSignature());
+                } else if (pointer instanceof InstanceField instanceField) {
+                    out.writeByte(INSTANCE_FIELD);
+                    writeObj(instanceField.getBase());
+                    writeString(instanceField.getField().getSignature());
+                } else {
+                    out.writeByte(ARRAY_INDEX);
+                    writeObj(((ArrayIndex) pointer).getArray());
+                }
+            }
+        }
+
+        private void writePointsToSet(PointsToSet pts) throws IOException {
+            out.writeInt(pts.size());
+            for (Obj obj : pts) {
+                writeObj(obj);
+            }
+        }
+
+        /**
+         * @return an allocation site that is abstracted as given object.
+         */
+        private static New getAllocSite(Obj obj) {
+            Object alloc = obj.getAllocation();
+            if (alloc instanceof New allocSite) {
+                return allocSite;
+            } else if (alloc instanceof Set<?> objs && !objs.isEmpty()) {
+                // merged object
+                return getAllocSite((Obj) objs.iterator().next());
+            } else {
+                throw new AnalysisException("Unsupported object: " + obj);
+            }
+        }
+    }
+
+    /**
+     * Reads program elements from the snapshot, and converts them
+     * to the elements of current run.
+     */
+    private static class Decoder {
+
+        private final DataInputStream in;
+
+        private final HeapModel heapModel;
+
+        private final PointerFlowGraph pointerFlowGraph;
+
+        private final ClassHierarchy hierarchy = World.get().getClassHierarchy();
+
+        private final List<String> strings = new ArrayList<>();
+
+        private final List<Obj> objs = new ArrayList<>();
+
+        private final List<Pointer> pointers = new ArrayList<>();
+
+        /**
+         * Whether the decoded variables are added to the pointers of the PFG.
+         */
+        private boolean addVarPointers = true;
+
+        private Decoder(DataInputStream in, HeapModel heapModel,
+                        PointerFlowGraph pointerFlowGraph) {
+            this.in = in;
+            this.heapModel = heapModel;
+            this.pointerFlowGraph = pointerFlowGraph;
+        }
+
+        private String readString() throws IOException {
+            int id = in.readInt();
+            if (id >= 0) {
+                return strings.get(id);
+            }
+            String s = in.readUTF();
+            strings.add(s);
+            return s;
+        }
+
+        private JMethod readMethod() throws IOException {
+            String signature = readString();
+            JMethod method = hierarchy.getMethod(signature);
+            if (method == null) {
+                throw new AnalysisException(
+                        "Method in checkpoint is absent: " + signature);
+            }
+            return method;
+        }
+
+        private JField readField() throws IOException {
+            String signature = readString();
+            JField field = hierarchy.getField(signature);
+            if (field == null) {
+                throw new AnalysisException(
+                        "Field in checkpoint is absent: " + signature);
+            }
+            return field;
+        }
+
+        private Stmt readStmt() throws IOException {
+            JMethod method = readMethod();
+            return method.getIR().getStmt(in.readInt());
+        }
+
+        private Obj readObj() throws IOException {
+            int id = in.readInt();
+            if (id >= 0) {
+                return objs.get(id);
+            }
+            Obj obj = heapModel.getObj((New) readStmt());
+            objs.add(obj);
+            return obj;
+        }
+
+        private Pointer readPointer() throws IOException {
+            int id = in.readInt();
+            if (id >= 0) {
+                return pointers.get(id);
+            }
+            Pointer pointer = switch (in.readByte()) {
+                case VAR -> {
+                    JMethod method = readMethod();
+                    Var var = method.getIR().getVar(in.readInt());
+                    yield addVarPointers ? pointerFlowGraph.getVarPtr(var)
+                            : pointerFlowGraph.getVarNode(var);
+                }
+                case STATIC_FIELD -> pointerFlowGraph.getStaticField(readField());
+                case INSTANCE_FIELD -> {
+                    Obj base = readObj();
+                    yield pointerFlowGraph.getInstanceField(base, readField());
+                }
+                case ARRAY_INDEX -> pointerFlowGraph.getArrayIndex(readObj());
+                default -> throw new AnalysisException("Corrupted checkpoint");
+            };
+            pointers.add(pointer);
+            return pointer;
+        }
+
+        private PointsToSet readPointsToSet() throws IOException {
+            PointsToSet pts = new PointsToSet();
+            for (int i = in.readInt(); i > 0; --i) {
+                pts.addObject(readObj());
+            }
+            return pts;
+        }
+    }
+}
@@ -0,0 +1,618 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.callgraph.CallGraphs;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.exp.InvokeInstanceExp;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.proginfo.MethodRef;
+import pascal.taie.ir.stmt.*;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.Type;
+import pascal.taie.language.type.TypeSystem;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Demand-driven context-insensitive pointer analysis.
+ * <p>
+ * This analysis applies the same pointer flow graph construction rules as
+ * {@link Solver}, but only to the pointers that the queried variables
+ * (transitively) depend on. A pointer becomes <em>demanded</em> when it is
+ * queried or when it flows to a demanded pointer, and points-to sets are
+ * only propagated to demanded pointers. The demanded part of the PFG is
+ * kept across queries, thus the answers of sub-queries are reused by
+ * later queries.
+ * <p>
+ * Each query is given a budget, i.e., the maximum number of steps
+ * (demanded pointers and work-list entries) it may process.
+ * If the budget is exhausted, the analysis falls back to the whole-program
+ * {@link Solver}, and answers this query and all subsequent queries
+ * with its result.
+ * <p>
+ * The methods that may be called are over-approximated by a class hierarchy
+ * analysis from the main method, and the call edges among them are
+ * resolved on demand with the points-to sets of receiver variables.
+ * Hence, the parameters of a method may also receive the objects passed
+ * by the methods that are unreachable in whole-program analysis.
+ * As the call edges are only resolved for the demanded call sites,
+ * {@link #getCallGraph()} is always answered by the fallback analysis.
+ */
+public class DemandDrivenPTA implements PointerAnalysisResult {
+
+    private static final Logger logger = LogManager.getLogger(DemandDrivenPTA.class);
+
+    /**
+     * Default budget of each query.
+     */
+    static final int DEFAULT_BUDGET = 100_000;
+
+    private final HeapModel heapModel;
+
+    private final int budget;
+
+    private final ClassHierarchy hierarchy;
+
+    private final TypeSystem typeSystem;
+
+    private final PointerFlowGraph pointerFlowGraph = new PointerFlowGraph();
+
+    private final WorkList workList = new WorkList();
+
+    /**
+     * Map from a pointer (node) to its predecessors in PFG.
+     */
+    private final MultiMap<Pointer, Pointer> predecessors = Maps.newMultiMap();
+
+    /**
+     * Pointers whose points-to sets are requested.
+     */
+    private final Set<Pointer> demanded = Sets.newSet();
+
+    /**
+     * Demanded pointers whose dependencies are not processed yet.
+     */
+    private final Queue<Pointer> demandQueue = new ArrayDeque<>();
+
+    /**
+     * Call sites whose call edges are resolved on demand.
+     */
+    private final Set<Invoke> activeCallSites = Sets.newSet();
+
+    /**
+     * Call edges resolved so far.
+     */
+    private final MultiMap<Invoke, JMethod> callEdges = Maps.newMultiMap();
+
+    /**
+     * Index of the methods that may be reachable from the main method.
+     */
+    private ProgramIndex index;
+
+    /**
+     * Result of the whole-program analysis, or null if no query has
+     * exhausted the budget yet.
+     */
+    private CIPTAResult fallback;
+
+    public DemandDrivenPTA(HeapModel heapModel) {
+        this(heapModel, DEFAULT_BUDGET);
+    }
+
+    /**
+     * @param heapModel the heap model
+     * @param budget    the maximum number of steps of each query
+     */
+    public DemandDrivenPTA(HeapModel heapModel, int budget) {
+        this.heapModel = heapModel;
+        this.budget = budget;
+        this.hierarchy = World.get().getClassHierarchy();
+        this.typeSystem = World.get().getTypeSystem();
+    }
+
+    /**
+     * @return the variables of the methods that may be reachable.
+     */
+    @Override
+    public Collection<Var> getVars() {
+        return getIndex().containers
+                .stream()
+                .flatMap(m -> m.getIR().getVars().stream())
+                .toList();
+    }
+
+    /**
+     * @return the objects pointed to by the variables in {@link #getVars()}.
+     * Note that this queries the points-to sets of all the variables.
+     */
+    @Override
+    public Collection<Obj> getObjects() {
+        Set<Obj> objects = Sets.newSet();
+        getVars().forEach(var -> objects.addAll(getPointsToSet(var)));
+        return objects;
+    }
+
+    @Override
+    public Set<Obj> getPointsToSet(Var var) {
+        VarPtr varPtr = pointerFlowGraph.getVarPtr(var);
+        return query(varPtr) ?
+                varPtr.getPointsToSet().getObjects() :
+                fallback.getPointsToSet(var);
+    }
+
+    @Override
+    public Set<Obj> getPointsToSet(Var base, JField field) {
+        Set<Obj> result = Sets.newHybridSet();
+        for (Obj obj : List.copyOf(getPointsToSet(base))) {
+            InstanceField instanceField = pointerFlowGraph.getInstanceField(obj, field);
+            if (!query(instanceField)) {
+                return fallback.getPointsToSet(base, field);
+            }
+            result.addAll(instanceField.getPointsToSet().getObjects());
+        }
+        return result;
+    }
+
+    @Override
+    public Set<Obj> getPointsToSet(JField field) {
+        StaticField staticField = pointerFlowGraph.getStaticField(field);
+        return query(staticField) ?
+                staticField.getPointsToSet().getObjects() :
+                fallback.getPointsToSet(field);
+    }
+
+    @Override
+    public CallGraph<Invoke, JMethod> getCallGraph() {
+        return getFallback().getCallGraph();
+    }
+
+    /**
+     * @return true if the query is answered, i.e., if pointer and the
+     * pointers it depends on reach fixed point within the budget.
+     * Otherwise, the whole-program analysis has been run and the query
+     * should be answered by {@link #fallback}.
+     */
+    private boolean query(Pointer pointer) {
+        if (fallback != null) {
+            return false;
+        }
+        getIndex();
+        demand(pointer);
+        if (solve()) {
+            return true;
+        } else {
+            logger.warn("Budget ({}) exhausted when querying {}," +
+                    " fall back to whole-program analysis", budget, pointer);
+            getFallback();
+            return false;
+        }
+    }
+
+    /**
+     * @return whether any query has exhausted the budget, so that
+     * the queries are answered by the whole-program analysis.
+     */
+    boolean isFallenBack() {
+        return fallback != null;
+    }
+
+    private ProgramIndex getIndex() {
+        if (index == null) {
+            index = new ProgramIndex();
+        }
+        return index;
+    }
+
+    private CIPTAResult getFallback() {
+        if (fallback == null) {
+            Solver solver = new Solver(heapModel);
+            solver.solve();
+            fallback = solver.getResult();
+        }
+        return fallback;
+    }
+
+    /**
+     * Processes demands and work-list entries until both of them are empty
+     * or the budget is exhausted.
+     *
+     * @return true if all demanded pointers reach fixed point.
+     */
+    private boolean solve() {
+        int steps = 0;
+        while (!demandQueue.isEmpty() || !workList.isEmpty()) {
+            if (++steps > budget) {
+                return false;
+            }
+            if (!demandQueue.isEmpty()) {
+                processDemand(demandQueue.poll());
+            } else {
+                WorkList.Entry entry = workList.pollEntry();
+                PointsToSet delta = propagate(entry.pointer(), entry.pointsToSet());
+                if (entry.pointer() instanceof VarPtr varPtr) {
+                    Var var = varPtr.getVar();
+                    for (Obj obj : delta) {
+                        processInstanceStmts(var, obj);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks given pointer as demanded.
+     */
+    private void demand(Pointer pointer) {
+        if (demanded.add(pointer)) {
+            demandQueue.add(pointer);
+        }
+    }
+
+    private boolean isDemanded(Pointer pointer) {
+        return demanded.contains(pointer);
+    }
+
+    /**
+     * Adds the pointers that flow to given (demanded) pointer.
+     */
+    private void processDemand(Pointer pointer) {
+        for (Pointer pred : predecessors.get(pointer)) {
+            demand(pred);
+            if (!pred.getPointsToSet().isEmpty()) {
+                workList.addEntry(pointer, pred.getPointsToSet());
+            }
+        }
+        if (pointer instanceof VarPtr varPtr) {
+            Var var = varPtr.getVar();
+            for (Stmt stmt : index.definitions.get(var)) {
+                processDefinition(varPtr, stmt);
+            }
+            JMethod method = var.getMethod();
+            IR ir = method.getIR();
+            if (var == ir.getThis() || ir.getParams().contains(var)) {
+                index.callSites.get(method).forEach(this::activate);
+            }
+        } else if (pointer instanceof StaticField staticField) {
+            for (StoreField store : index.staticStores.get(staticField.getField())) {
+                addPFGEdge(pointerFlowGraph.getVarPtr(store.getRValue()), staticField);
+            }
+        } else if (pointer instanceof InstanceField instanceField) {
+            Obj base = instanceField.getBase();
+            for (StoreField store : index.instanceStores.get(instanceField.getField())) {
+                VarPtr basePtr = pointerFlowGraph.getVarPtr(
+                        ((InstanceFieldAccess) store.getFieldAccess()).getBase());
+                demand(basePtr);
+                if (basePtr.getPointsToSet().contains(base)) {
+                    addPFGEdge(pointerFlowGraph.getVarPtr(store.getRValue()), instanceField);
+                }
+            }
+        } else if (pointer instanceof ArrayIndex arrayIndex) {
+            Obj array = arrayIndex.getArray();
+            // only the stores whose base variables may point to
+            // the array (by declared type) are examined
+            index.arrayStores.forEachSet((baseType, stores) -> {
+                if (typeSystem.isSubtype(baseType, array.getType())) {
+                    for (StoreArray store : stores) {
+                        VarPtr basePtr = pointerFlowGraph.getVarPtr(
+                                store.getArrayAccess().getBase());
+                        demand(basePtr);
+                        if (basePtr.getPointsToSet().contains(array)) {
+                            addPFGEdge(pointerFlowGraph.getVarPtr(
+                                    store.getRValue()), arrayIndex);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Processes a statement that defines the variable of a demanded pointer.
+     */
+    private void processDefinition(VarPtr varPtr, Stmt stmt) {
+        if (stmt instanceof New newStmt) {
+            workList.addEntry(varPtr, new PointsToSet(heapModel.getObj(newStmt)));
+        } else if (stmt instanceof Copy copy) {
+            addPFGEdge(pointerFlowGraph.getVarPtr(copy.getRValue()), varPtr);
+        } else if (stmt instanceof LoadField load) {
+            JField field = load.getFieldRef().resolve();
+            if (load.isStatic()) {
+                addPFGEdge(pointerFlowGraph.getStaticField(field), varPtr);
+            } else {
+                VarPtr basePtr = pointerFlowGraph.getVarPtr(
+                        ((InstanceFieldAccess) load.getFieldAccess()).getBase());
+                demand(basePtr);
+                for (Obj obj : basePtr.getPointsToSet()) {
+                    addPFGEdge(pointerFlowGraph.getInstanceField(obj, field), varPtr);
+                }
+            }
+        } else if (stmt instanceof LoadArray load) {
+            VarPtr basePtr = pointerFlowGraph.getVarPtr(load.getArrayAccess()
+                    .getBase());
+            demand(basePtr);
+            for (Obj obj : basePtr.getPointsToSet()) {
+                addPFGEdge(pointerFlowGraph.getArrayIndex(obj), varPtr);
+            }
+        } else if (stmt instanceof Invoke invoke) {
+            activate(invoke);
+        }
+    }
+
+    /**
+     * Processes the field/array accesses and instance calls on var
+     * when the points-to set of var changes.
+     * Only the edges that flow to demanded pointers are added.
+     */
+    private void processInstanceStmts(Var var, Obj obj) {
+        for (StoreField store : var.getStoreFields()) {
+            InstanceField field = pointerFlowGraph.getInstanceField(
+                    obj, store.getFieldRef().resolve());
+            if (isDemanded(field)) {
+                addPFGEdge(pointerFlowGraph.getVarPtr(store.getRValue()), field);
+            }
+        }
+        for (LoadField load : var.getLoadFields()) {
+            VarPtr lhs = pointerFlowGraph.getVarPtr(load.getLValue());
+            if (isDemanded(lhs)) {
+                addPFGEdge(pointerFlowGraph.getInstanceField(
+                        obj, load.getFieldRef().resolve()), lhs);
+            }
+        }
+        for (StoreArray store : var.getStoreArrays()) {
+            ArrayIndex arrayIndex = pointerFlowGraph.getArrayIndex(obj);
+            if (isDemanded(arrayIndex)) {
+                addPFGEdge(pointerFlowGraph.getVarPtr(store.getRValue()), arrayIndex);
+            }
+        }
+        for (LoadArray load : var.getLoadArrays()) {
+            VarPtr lhs = pointerFlowGraph.getVarPtr(load.getLValue());
+            if (isDemanded(lhs)) {
+                addPFGEdge(pointerFlowGraph.getArrayIndex(obj), lhs);
+            }
+        }
+        for (Invoke invoke : var.getInvokes()) {
+            if (!invoke.isStatic() && activeCallSites.contains(invoke)) {
+                processCall(invoke, obj);
+            }
+        }
+    }
+
+    /**
+     * Starts to resolve the call edges of given call site.
+     */
+    private void activate(Invoke invoke) {
+        if (index.containers.contains(invoke.getContainer())
+                && activeCallSites.add(invoke)) {
+            if (invoke.isStatic()) {
+                processCall(invoke, null);
+            } else {
+                VarPtr recvPtr = pointerFlowGraph.getVarPtr(getReceiver(invoke));
+                demand(recvPtr);
+                for (Obj recv : recvPtr.getPointsToSet()) {
+                    processCall(invoke, recv);
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes the call edge from invoke to the callee resolved on recv.
+     */
+    private void processCall(Invoke invoke, @Nullable Obj recv) {
+        Type type = recv != null ? recv.getType() : null;
+        JMethod callee = CallGraphs.resolveCallee(type, invoke);
+        if (callee == null || callee.isAbstract()) {
+            return;
+        }
+        IR ir = callee.getIR();
+        if (recv != null) {
+            workList.addEntry(pointerFlowGraph.getVarPtr(ir.getThis()),
+                    new PointsToSet(recv));
+        }
+        if (callEdges.put(invoke, callee)) {
+            for (int i = 0; i < invoke.getInvokeExp().getArgCount(); ++i) {
+                addPFGEdge(pointerFlowGraph.getVarPtr(invoke.getInvokeExp().getArg(i)),
+                        pointerFlowGraph.getVarPtr(ir.getParam(i)));
+            }
+            if (invoke.getLValue() != null) {
+                for (Var ret : ir.getReturnVars()) {
+                    addPFGEdge(pointerFlowGraph.getVarPtr(ret),
+                            pointerFlowGraph.getVarPtr(invoke.getLValue()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an edge "source -> target" to the PFG. If target is demanded,
+     * then source also becomes demanded.
+     */
+    private void addPFGEdge(Pointer source, Pointer target) {
+        if (pointerFlowGraph.addEdge(source, target)) {
+            predecessors.put(target, source);
+            if (isDemanded(target)) {
+                demand(source);
+                if (!source.getPointsToSet().isEmpty()) {
+                    workList.addEntry(target, source.getPointsToSet());
+                }
+            }
+        }
+    }
+
+    /**
+     * Propagates pointsToSet to pt(pointer) and its demanded PFG successors,
+     * returns the difference set of pointsToSet and pt(pointer).
+     */
+    private PointsToSet propagate(Pointer pointer, PointsToSet pointsToSet) {
+        PointsToSet delta = new PointsToSet();
+        PointsToSet receiver = pointer.getPointsToSet();
+        for (Obj obj : pointsToSet) {
+            if (receiver.addObject(obj)) {
+                delta.addObject(obj);
+            }
+        }
+        if (!delta.isEmpty()) {
+            for (Pointer succ : pointerFlowGraph.getSuccsOf(pointer)) {
+                if (isDemanded(succ)) {
+                    workList.addEntry(succ, delta);
+                }
+            }
+        }
+        return delta;
+    }
+
+    private static Var getReceiver(Invoke invoke) {
+        return ((InvokeInstanceExp) invoke.getInvokeExp()).getBase();
+    }
+
+    /**
+     * Indexes the statements of the methods that are reachable from
+     * the main method in the call graph built by class hierarchy analysis.
+     */
+    private class ProgramIndex {
+
+        /**
+         * Methods that may be reachable.
+         */
+        private final Set<JMethod> containers = Sets.newSet();
+
+        /**
+         * Map from a variable to the statements that define it.
+         */
+        private final MultiMap<Var, Stmt> definitions = Maps.newMultiMap();
+
+        private final MultiMap<JField, StoreField> staticStores = Maps.newMultiMap();
+
+        private final MultiMap<JField, StoreField> instanceStores = Maps.newMultiMap();
+
+        /**
+         * Map from an array type to the array stores whose base
+         * variables are declared of the type.
+         */
+        private final MultiMap<Type, StoreArray> arrayStores = Maps.newMultiMap();
+
+        /**
+         * Map from a method to the call sites that may call it.
+         */
+        private final MultiMap<JMethod, Invoke> callSites = Maps.newMultiMap();
+
+        private ProgramIndex() {
+            Queue<JMethod> queue = new ArrayDeque<>();
+            JMethod main = World.get().getMainMethod();
+            containers.add(main);
+            queue.add(main);
+            while (!queue.isEmpty()) {
+                JMethod method = queue.poll();
+                for (Stmt stmt : method.getIR().getStmts()) {
+                    indexStmt(stmt);
+                    if (stmt instanceof Invoke invoke && !invoke.isDynamic()) {
+                        for (JMethod callee : resolveCHA(invoke)) {
+                            callSites.put(callee, invoke);
+                            if (containers.add(callee)) {
+                                queue.add(callee);
+                            }
+                        }
+                    }
+                }
+            }
+            logger.info("Indexed {} methods for demand-driven queries",
+                    containers.size());
+        }
+
+        private void indexStmt(Stmt stmt) {
+            if (stmt instanceof New newStmt) {
+                definitions.put(newStmt.getLValue(), stmt);
+            } else if (stmt instanceof Copy copy) {
+                definitions.put(copy.getLValue(), stmt);
+            } else if (stmt instanceof LoadField load) {
+                definitions.put(load.getLValue(), stmt);
+            } else if (stmt instanceof LoadArray load) {
+                definitions.put(load.getLValue(), stmt);
+            } else if (stmt instanceof Invoke invoke) {
+                if (invoke.getLValue() != null) {
+                    definitions.put(invoke.getLValue(), invoke);
+                }
+            } else if (stmt instanceof StoreField store) {
+                JField field = store.getFieldRef().resolve();
+                if (store.isStatic()) {
+                    staticStores.put(field, store);
+                } else {
+                    instanceStores.put(field, store);
+                }
+            } else if (stmt instanceof StoreArray store) {
+                arrayStores.put(store.getArrayAccess().getBase().getType(), store);
+            }
+        }
+
+        /**
+         * @return the callees of given call site resolved by
+         * class hierarchy analysis.
+         */
+        private Set<JMethod> resolveCHA(Invoke invoke) {
+            Set<JMethod> callees = Sets.newHybridSet();
+            MethodRef methodRef = invoke.getMethodRef();
+            if (invoke.isStatic()) {
+                callees.add(methodRef.resolve());
+            } else if (invoke.isSpecial()) {
+                JMethod callee = hierarchy.dispatch(
+                        methodRef.getDeclaringClass(), methodRef);
+                if (callee != null) {
+                    callees.add(callee);
+                }
+            } else {
+                for (JClass c : hierarchy.getAllSubclassesOf(
+                        methodRef.getDeclaringClass(), true)) {
+                    if (!c.isAbstract()) {
+                        JMethod callee = hierarchy.dispatch(c, methodRef);
+                        if (callee != null) {
+                            callees.add(callee);
+                        }
+                    }
+                }
+            }
+            callees.removeIf(JMethod::isAbstract);
+            return callees;
+        }
+    }
+}
@@ -29,7 +29,18 @@ package pascal.taie.analysis.pta.ci;
  */
 abstract class Pointer {
 
-    private final PointsToSet pointsToSet = new PointsToSet();
+    private final PointsToSet pointsToSet;
+
+    Pointer() {
+        this(new PointsToSet());
+    }
+
+    /**
+     * Constructs a pointer that shares given points-to set.
+     */
+    Pointer(PointsToSet pointsToSet) {
+        this.pointsToSet = pointsToSet;
+    }
 
     PointsToSet getPointsToSet() {
         return pointsToSet;
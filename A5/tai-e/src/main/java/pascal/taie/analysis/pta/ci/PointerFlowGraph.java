@@ -30,6 +30,7 @@ import pascal.taie.util.collection.MultiMap;
 import pascal.taie.util.collection.Sets;
 import pascal.taie.util.collection.TwoKeyMap;
 
+import javax.annotation.Nullable;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
@@ -69,6 +70,26 @@ class PointerFlowGraph {
      */
     private final MultiMap<Pointer, Pointer> successors = Maps.newMultiMap();
 
+    /**
+     * Substitution of pointer-equivalent variables, or null if
+     * the variables are not substituted.
+     */
+    private final VarSubstitution substitution;
+
+    /**
+     * Number of Var nodes of substituted variables, which share
+     * the points-to sets of their representatives.
+     */
+    private int substitutedVarPtrs;
+
+    PointerFlowGraph() {
+        this(null);
+    }
+
+    PointerFlowGraph(@Nullable VarSubstitution substitution) {
+        this.substitution = substitution;
+    }
+
     /**
      * Returns all pointers in this PFG.
      */
@@ -76,15 +97,46 @@ class PointerFlowGraph {
         return Collections.unmodifiableSet(pointers);
     }
 
+    /**
+     * @return the number of nodes in this PFG, i.e., the pointers
+     * except the substituted variables.
+     */
+    int getNumberOfNodes() {
+        return pointers.size() - substitutedVarPtrs;
+    }
+
     /**
      * @return the corresponding Var node for the given variable.
+     * If the variable is substituted, returns the node of its representative,
+     * and the node of the variable shares the points-to set with it.
      */
     VarPtr getVarPtr(Var var) {
-        return varPtrs.computeIfAbsent(var, v -> {
-            VarPtr varPtr = new VarPtr(v);
+        Var rep = substitution != null ?
+                substitution.getRepresentative(var) : var;
+        // the node of representative is not added to pointers until
+        // the representative itself is requested
+        VarPtr repPtr = varPtrs.computeIfAbsent(rep, VarPtr::new);
+        if (rep == var) {
+            pointers.add(repPtr);
+        } else if (!varPtrs.containsKey(var)) {
+            VarPtr varPtr = new VarPtr(var, repPtr.getPointsToSet());
+            varPtrs.put(var, varPtr);
             pointers.add(varPtr);
-            return varPtr;
-        });
+            ++substitutedVarPtrs;
+        }
+        return repPtr;
+    }
+
+    /**
+     * @return the Var node of given variable, i.e., the node of its
+     * representative if the variable is substituted. Different from
+     * {@link #getVarPtr(Var)}, this method does not add the variable
+     * to the pointers of this PFG.
+     */
+    VarPtr getVarNode(Var var) {
+        Var rep = substitution != null ?
+                substitution.getRepresentative(var) : var;
+        return varPtrs.computeIfAbsent(rep, VarPtr::new);
     }
 
     /**
@@ -137,4 +189,11 @@ class PointerFlowGraph {
     Set<Pointer> getSuccsOf(Pointer pointer) {
         return successors.get(pointer);
     }
+
+    /**
+     * @return the pointers that have successors in the PFG.
+     */
+    Set<Pointer> getSources() {
+        return successors.keySet();
+    }
 }
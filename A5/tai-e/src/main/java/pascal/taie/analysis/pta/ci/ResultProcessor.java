@@ -24,7 +24,9 @@ package pascal.taie.analysis.pta.ci;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.pta.core.heap.Obj;
 import pascal.taie.config.AnalysisOptions;
+import pascal.taie.ir.exp.Var;
 import pascal.taie.util.AnalysisException;
 import pascal.taie.util.collection.Streams;
 import pascal.taie.util.collection.Views;
@@ -43,6 +45,8 @@ import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.function.Predicate;
 import java.util.function.ToIntFunction;
 
@@ -80,6 +84,30 @@ class ResultProcessor {
         }
     }
 
+    /**
+     * Processes the result of demand-driven analysis. Only the points-to
+     * sets of variables are dumped or compared, as the other pointers are
+     * computed only when they are demanded.
+     */
+    void process(DemandDrivenPTA result) {
+        String action = options.getString("action");
+        if (action == null) {
+            return;
+        }
+        Map<String, Var> vars = new TreeMap<>();
+        result.getVars().forEach(var ->
+                vars.put(var.getMethod() + "/" + var.getName(), var));
+        String file = options.getString("file");
+        switch (action) {
+            case "dump" -> dumpVarPointsToSet(result, vars, file);
+            case "compare" -> compareVarPointsToSet(result, vars, file);
+        }
+        if (result.isFallenBack()) {
+            logger.info("Budget exhausted, queries are answered by" +
+                    " whole-program analysis");
+        }
+    }
+
     private static void logStatistics(CIPTAResult result) {
         int vars = result.getVars().size();
         ToIntFunction<Pointer> getSize = p -> p.getPointsToSet().size();
@@ -105,18 +133,9 @@ class ResultProcessor {
     }
 
     private static void dumpPointsToSet(CIPTAResult result, String output) {
-        PrintStream out;
-        if (output != null) {  // if output file is given, then dump to the file
-            File outFile = new File(output);
-            try {
-                out = new PrintStream(new FileOutputStream(outFile));
-                logger.info("Dumping points-to set to {} ...", outFile);
-            } catch (FileNotFoundException e) {
-                throw new RuntimeException("Failed to open output file", e);
-            }
-        } else {  // otherwise, dump to System.out
-            out = System.out;
-        }
+        // if output file is given, then dump to the file,
+        // otherwise, dump to System.out
+        PrintStream out = output != null ? openFile(output) : System.out;
         dumpPointers(out, getPointers(result, VarPtr.class), "variables");
         dumpPointers(out, getPointers(result, StaticField.class), "static fields");
         dumpPointers(out, getPointers(result, InstanceField.class), "instance fields");
@@ -126,6 +145,33 @@ class ResultProcessor {
         }
     }
 
+    private static void dumpVarPointsToSet(
+            DemandDrivenPTA result, Map<String, Var> vars, String output) {
+        PrintStream out = output != null ? openFile(output) : System.out;
+        out.println(HEADER + "variables");
+        vars.forEach((varStr, var) -> {
+            Set<Obj> pts = result.getPointsToSet(var);
+            if (!pts.isEmpty()) {
+                out.println(varStr + SEP + Streams.toString(pts.stream()));
+            }
+        });
+        out.println();
+        if (out != System.out) {
+            out.close();
+        }
+    }
+
+    private static PrintStream openFile(String output) {
+        File outFile = new File(output);
+        try {
+            PrintStream out = new PrintStream(new FileOutputStream(outFile));
+            logger.info("Dumping points-to set to {} ...", outFile);
+            return out;
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException("Failed to open output file", e);
+        }
+    }
+
     private static Collection<Pointer> getPointers(
             CIPTAResult result, Class<? extends Pointer> klass) {
         return Views.toFilteredCollection(
@@ -177,6 +223,43 @@ class ResultProcessor {
         }
     }
 
+    /**
+     * Compares the points-to sets of the variables in the input file
+     * with the answers of demand-driven queries. The variables absent
+     * from the input file are not compared, as the methods that are
+     * unreachable in whole-program analysis may be indexed by
+     * demand-driven analysis.
+     */
+    private static void compareVarPointsToSet(
+            DemandDrivenPTA result, Map<String, Var> vars, String input) {
+        logger.info("Comparing points-to set of variables with {} ...", input);
+        List<String> mismatches = new ArrayList<>();
+        readPointsToSets(input).forEach((pointerStr, expected) -> {
+            if (isVarPointer(pointerStr)) {
+                Var var = vars.get(pointerStr);
+                String given = var != null ?
+                        Streams.toString(result.getPointsToSet(var).stream()) :
+                        null;
+                if (!expected.equals(given)) {
+                    mismatches.add(String.format("%s, expected: %s, given: %s",
+                            pointerStr, expected, given));
+                }
+            }
+        });
+        if (!mismatches.isEmpty()) {
+            throw new AnalysisException("Mismatches of points-to set\n" +
+                    String.join("\n", mismatches));
+        }
+    }
+
+    /**
+     * @return whether pointerStr represents a variable, i.e.,
+     * in the form of "method/var".
+     */
+    private static boolean isVarPointer(String pointerStr) {
+        return pointerStr.startsWith("<") && pointerStr.contains(">/");
+    }
+
     private static Map<String, String> readPointsToSets(String input) {
         try {
             Map<String, String> result = new LinkedHashMap<>();
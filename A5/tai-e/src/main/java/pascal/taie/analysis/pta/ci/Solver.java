@@ -36,6 +36,9 @@ import pascal.taie.language.classes.ClassHierarchy;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.language.type.Type;
 
+import javax.annotation.Nullable;
+import java.util.Set;
+
 class Solver {
 
     private static final Logger logger = LogManager.getLogger(Solver.class);
@@ -46,22 +49,70 @@ class Solver {
 
     private PointerFlowGraph pointerFlowGraph;
 
+    /**
+     * Whether pointer-equivalent variables are substituted.
+     */
+    private final boolean substituteVars;
+
+    /**
+     * Substitution of pointer-equivalent variables, or null if
+     * the variables are not substituted.
+     */
+    private VarSubstitution varSubstitution;
+
     private WorkList workList;
 
     private StmtProcessor stmtProcessor;
 
     private ClassHierarchy hierarchy;
 
+    /**
+     * Checkpoint of the solver state, or null if checkpointing is disabled.
+     */
+    private final Checkpoint checkpoint;
+
+    /**
+     * Interval between two checkpoints in milliseconds.
+     */
+    private final long checkpointInterval;
+
+    private long nextCheckpointTime;
+
     Solver(HeapModel heapModel) {
+        this(heapModel, null, 0, true);
+    }
+
+    /**
+     * @param checkpoint         the checkpoint to resume from (if exists)
+     *                           and save to periodically, or null if
+     *                           checkpointing is disabled.
+     * @param checkpointInterval interval between two checkpoints
+     *                           in milliseconds.
+     * @param substituteVars     whether pointer-equivalent variables
+     *                           are substituted.
+     */
+    Solver(HeapModel heapModel, @Nullable Checkpoint checkpoint,
+           long checkpointInterval, boolean substituteVars) {
         this.heapModel = heapModel;
+        this.checkpoint = checkpoint;
+        this.checkpointInterval = checkpointInterval;
+        this.substituteVars = substituteVars;
     }
 
     /**
      * Runs pointer analysis algorithm.
      */
     void solve() {
+        varSubstitution = substituteVars ? new VarSubstitution() : null;
         initialize();
         analyze();
+        if (checkpoint != null) {
+            saveCheckpoint();
+        }
+        if (varSubstitution != null) {
+            logger.info("{} variables are substituted by pointer-equivalent ones",
+                    varSubstitution.getNumberOfSubstitutedVars());
+        }
     }
 
     /**
@@ -69,10 +120,18 @@ class Solver {
      */
     private void initialize() {
         workList = new WorkList();
-        pointerFlowGraph = new PointerFlowGraph();
+        pointerFlowGraph = new PointerFlowGraph(varSubstitution);
         callGraph = new DefaultCallGraph();
         stmtProcessor = new StmtProcessor();
         hierarchy = World.get().getClassHierarchy();
+        if (checkpoint != null) {
+            nextCheckpointTime = System.currentTimeMillis() + checkpointInterval;
+            if (checkpoint.restore(heapModel, callGraph,
+                    pointerFlowGraph, workList)) {
+                logger.info("Resumed from checkpoint {}", checkpoint.getFile());
+                return;
+            }
+        }
         // initialize main method
         JMethod main = World.get().getMainMethod();
         callGraph.addEntryMethod(main);
@@ -164,35 +223,62 @@ class Solver {
             WorkList.Entry head = workList.pollEntry();
             PointsToSet delta = propagate(head.pointer(), head.pointsToSet());
             if (head.pointer() instanceof VarPtr varptr) {
-                Var var = varptr.getVar();
-                for (Obj obj : delta) {
-                    for (StoreField storeField : var.getStoreFields()) {
-                        addPFGEdge(
-                                pointerFlowGraph.getVarPtr(storeField.getRValue()),
-                                pointerFlowGraph.getInstanceField(obj, storeField.getFieldRef().resolve())
-                        );
-                    }
-                    for (LoadField loadField : var.getLoadFields()) {
-                        addPFGEdge(
-                                pointerFlowGraph.getInstanceField(obj, loadField.getFieldRef().resolve()),
-                                pointerFlowGraph.getVarPtr(loadField.getLValue())
-                        );
-                    }
-                    for (StoreArray storeArray : var.getStoreArrays()) {
-                        addPFGEdge(
-                                pointerFlowGraph.getVarPtr(storeArray.getRValue()),
-                                pointerFlowGraph.getArrayIndex(obj)
-                        );
-                    }
-                    for (LoadArray loadArray : var.getLoadArrays()) {
-                        addPFGEdge(
-                                pointerFlowGraph.getArrayIndex(obj),
-                                pointerFlowGraph.getVarPtr(loadArray.getLValue())
-                        );
-                    }
-                    processCall(var, obj);
+                // the statements on all variables represented by varptr
+                // need to be processed
+                Set<Var> vars = varSubstitution != null ?
+                        varSubstitution.getMembers(varptr.getVar()) :
+                        Set.of(varptr.getVar());
+                for (Var var : vars) {
+                    processInstanceStmts(var, delta);
                 }
             }
+            if (checkpoint != null &&
+                    System.currentTimeMillis() >= nextCheckpointTime) {
+                saveCheckpoint();
+            }
+        }
+    }
+
+    /**
+     * Saves current state of the solver to the checkpoint.
+     */
+    private void saveCheckpoint() {
+        checkpoint.save(callGraph, pointerFlowGraph, workList);
+        logger.info("Saved checkpoint to {}", checkpoint.getFile());
+        nextCheckpointTime = System.currentTimeMillis() + checkpointInterval;
+    }
+
+    /**
+     * Processes the field/array accesses and instance calls on var
+     * when the points-to set of var changes.
+     */
+    private void processInstanceStmts(Var var, PointsToSet delta) {
+        for (Obj obj : delta) {
+            for (StoreField storeField : var.getStoreFields()) {
+                addPFGEdge(
+                        pointerFlowGraph.getVarPtr(storeField.getRValue()),
+                        pointerFlowGraph.getInstanceField(obj, storeField.getFieldRef().resolve())
+                );
+            }
+            for (LoadField loadField : var.getLoadFields()) {
+                addPFGEdge(
+                        pointerFlowGraph.getInstanceField(obj, loadField.getFieldRef().resolve()),
+                        pointerFlowGraph.getVarPtr(loadField.getLValue())
+                );
+            }
+            for (StoreArray storeArray : var.getStoreArrays()) {
+                addPFGEdge(
+                        pointerFlowGraph.getVarPtr(storeArray.getRValue()),
+                        pointerFlowGraph.getArrayIndex(obj)
+                );
+            }
+            for (LoadArray loadArray : var.getLoadArrays()) {
+                addPFGEdge(
+                        pointerFlowGraph.getArrayIndex(obj),
+                        pointerFlowGraph.getVarPtr(loadArray.getLValue())
+                );
+            }
+            processCall(var, obj);
         }
     }
 
@@ -262,4 +348,12 @@ class Solver {
     CIPTAResult getResult() {
         return new CIPTAResult(pointerFlowGraph, callGraph);
     }
+
+    /**
+     * @param cacheSize maximum number of points-to sets of field
+     *                  expressions cached by the result.
+     */
+    CIPTAResult getResult(int cacheSize) {
+        return new CIPTAResult(pointerFlowGraph, callGraph, cacheSize);
+    }
 }
@@ -35,6 +35,15 @@ class VarPtr extends Pointer {
         this.var = var;
     }
 
+    /**
+     * Constructs a variable pointer that shares the points-to set
+     * of its pointer-equivalent representative.
+     */
+    VarPtr(Var var, PointsToSet pointsToSet) {
+        super(pointsToSet);
+        this.var = var;
+    }
+
     /**
      * @return the corresponding variable of the variable pointer.
      */
@@ -0,0 +1,156 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Copy;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Offline variable substitution (in the style of HU) for pointer analysis.
+ * <p>
+ * Each variable is labeled with the set of its <em>base labels</em>:
+ * an allocation site labels the variable it is assigned to, and each
+ * parameter, "this" variable and the left-hand side of each load/invoke
+ * gets a fresh label, as the objects flowing into them are unknown before
+ * solving. Labels are propagated along the copy statements in the method.
+ * Variables with the same set of labels must have the same points-to set,
+ * thus they are pointer-equivalent and can share one representative.
+ * <p>
+ * As all statements that define a variable reside in the method that
+ * declares the variable, the substitution of each method is computed
+ * independently, when any variable of the method is first queried.
+ */
+class VarSubstitution {
+
+    /**
+     * Map from a method to the representatives of its variables.
+     */
+    private final Map<JMethod, Map<Var, Var>> representatives = Maps.newMap();
+
+    /**
+     * Map from a representative to the variables it represents
+     * (including itself). Representatives of singleton classes are absent.
+     */
+    private final MultiMap<Var, Var> members = Maps.newMultiMap();
+
+    /**
+     * Number of variables that are replaced by their representatives.
+     */
+    private int substituted;
+
+    /**
+     * @return the representative of given variable.
+     */
+    Var getRepresentative(Var var) {
+        return representatives.computeIfAbsent(var.getMethod(), this::compute)
+                .getOrDefault(var, var);
+    }
+
+    /**
+     * @return the variables represented by given representative.
+     */
+    Set<Var> getMembers(Var rep) {
+        Set<Var> vars = members.get(rep);
+        return vars.isEmpty() ? Set.of(rep) : vars;
+    }
+
+    /**
+     * @return the number of variables that are replaced by
+     * their representatives.
+     */
+    int getNumberOfSubstitutedVars() {
+        return substituted;
+    }
+
+    private Map<Var, Var> compute(JMethod method) {
+        if (method.isAbstract()) {
+            return Map.of();
+        }
+        IR ir = method.getIR();
+        Map<Var, Set<Integer>> labels = Maps.newMap();
+        MultiMap<Var, Var> copies = Maps.newMultiMap();
+        int[] nextLabel = { 0 };
+        ir.getVars().forEach(v -> labels.put(v, Sets.newHybridSet()));
+        if (ir.getThis() != null) {
+            labels.get(ir.getThis()).add(nextLabel[0]++);
+        }
+        ir.getParams().forEach(p -> labels.get(p).add(nextLabel[0]++));
+        for (Stmt stmt : ir.getStmts()) {
+            // allocation sites are distinguished by their statements,
+            // thus they are labeled in the same way as loads and invokes
+            if (stmt instanceof New newStmt) {
+                labels.get(newStmt.getLValue()).add(nextLabel[0]++);
+            } else if (stmt instanceof LoadField load) {
+                labels.get(load.getLValue()).add(nextLabel[0]++);
+            } else if (stmt instanceof LoadArray load) {
+                labels.get(load.getLValue()).add(nextLabel[0]++);
+            } else if (stmt instanceof Invoke invoke && invoke.getLValue() != null) {
+                labels.get(invoke.getLValue()).add(nextLabel[0]++);
+            } else if (stmt instanceof Copy copy) {
+                copies.put(copy.getRValue(), copy.getLValue());
+            }
+        }
+        // propagate labels along copy statements until fixed point
+        Queue<Var> workList = new ArrayDeque<>(copies.keySet());
+        while (!workList.isEmpty()) {
+            Var from = workList.poll();
+            for (Var to : copies.get(from)) {
+                if (labels.get(to).addAll(labels.get(from))) {
+                    workList.add(to);
+                }
+            }
+        }
+        // variables with identical labels are pointer-equivalent; the first
+        // declared one (i.e., "this" and parameters come first) represents
+        // the others
+        Map<Set<Integer>, Var> classes = Maps.newMap();
+        Map<Var, Var> reps = Maps.newMap();
+        for (Var var : ir.getVars()) {
+            Var rep = classes.computeIfAbsent(labels.get(var), l -> var);
+            if (rep != var) {
+                reps.put(var, rep);
+                if (!members.containsKey(rep)) {
+                    members.put(rep, rep);
+                }
+                members.put(rep, var);
+                ++substituted;
+            }
+        }
+        return reps;
+    }
+}
@@ -23,6 +23,8 @@
 package pascal.taie.analysis.pta.ci;
 
 import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Queue;
 
 /**
@@ -54,6 +56,13 @@ class WorkList {
         return entries.isEmpty();
     }
 
+    /**
+     * @return the pending entries in this work list.
+     */
+    Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(entries);
+    }
+
     /**
      * Represents entries in the work list.
      * Each entry consists of a pointer and a points-to set.
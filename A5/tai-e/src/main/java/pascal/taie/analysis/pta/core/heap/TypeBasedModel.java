@@ -0,0 +1,42 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.heap;
+
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.ir.stmt.New;
+
+/**
+ * Allocation-type-based heap model, which merges all objects
+ * allocated with the same type into one abstract object.
+ */
+public class TypeBasedModel extends AbstractHeapModel {
+
+    public TypeBasedModel(AnalysisOptions options) {
+        super(options);
+    }
+
+    @Override
+    protected Obj doGetObj(New allocSite) {
+        return getMergedObj(allocSite);
+    }
+}
@@ -25,6 +25,12 @@ package pascal.taie.analysis.pta;
 import org.junit.Test;
 import pascal.taie.analysis.Tests;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertTrue;
+
 public class CIPTATest {
 
     static final String DIR = "cipta";
@@ -78,4 +84,49 @@ public class CIPTATest {
     public void testMergeParam() {
         Tests.testCIPTA(DIR, "MergeParam");
     }
+
+    @Test
+    public void testTypeHeapModel() {
+        Tests.testCIPTA(DIR, "TypeHeap", "heap-model:type");
+    }
+
+    @Test
+    public void testMahjongHeapModel() {
+        // the objects pointed to by a1 and a2 (and the B objects
+        // of their fields) are merged, but not the one pointed to by a3
+        Tests.testCIPTA(DIR, "Mahjong", "heap-model:mahjong");
+    }
+
+    @Test
+    public void testDemandDriven() {
+        Tests.testCIPTA(DIR, "Example", "demand-driven:true");
+    }
+
+    @Test
+    public void testDemandDrivenInstanceField() {
+        Tests.testCIPTA(DIR, "InstanceField", "demand-driven:true");
+    }
+
+    @Test
+    public void testDemandDrivenFallback() {
+        // the budget is too small to answer any query, thus all queries
+        // are answered by whole-program analysis
+        Tests.testCIPTA(DIR, "InstanceField",
+                "demand-driven:true", "demand-budget:1");
+    }
+
+    @Test
+    public void testCheckpoint() throws IOException {
+        Path checkpoint = Files.createTempFile("InstanceField", ".checkpoint");
+        Files.delete(checkpoint);
+        try {
+            // the first run saves its final state to the checkpoint,
+            // and the second run resumes from the checkpoint
+            Tests.testCIPTA(DIR, "InstanceField", "checkpoint:" + checkpoint);
+            assertTrue(Files.exists(checkpoint));
+            Tests.testCIPTA(DIR, "InstanceField", "checkpoint:" + checkpoint);
+        } finally {
+            Files.deleteIfExists(checkpoint);
+        }
+    }
 }
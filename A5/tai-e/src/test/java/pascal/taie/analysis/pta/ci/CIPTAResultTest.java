@@ -0,0 +1,109 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import org.junit.Test;
+import pascal.taie.World;
+import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.language.classes.JField;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CIPTAResultTest {
+
+    private static final String DIR = "cipta";
+
+    @Test
+    public void testFieldPointsToCache() {
+        CIPTAResult result = analyze();
+        result = new CIPTAResult(result.getPointerFlowGraph(),
+                result.getCallGraph(), 2);
+        Var a = getVar("a"), a1 = getVar("a1");
+        JField f = getField("f"), g = getField("g");
+        Set<Obj> af = result.getPointsToSet(a, f);
+        result.getPointsToSet(a, g);
+        // a.f is the most recently used entry after this hit,
+        // thus a1.f evicts a.g
+        assertSame(af, result.getPointsToSet(a, f));
+        result.getPointsToSet(a1, f);
+        assertSame(af, result.getPointsToSet(a, f));
+        result.getPointsToSet(a, g);
+        assertEquals(2, result.getCacheHits());
+        assertEquals(4, result.getCacheMisses());
+    }
+
+    @Test
+    public void testFieldPointsToCacheDisabled() {
+        CIPTAResult result = analyze();
+        result = new CIPTAResult(result.getPointerFlowGraph(),
+                result.getCallGraph(), 0);
+        Var a = getVar("a");
+        JField f = getField("f");
+        result.getPointsToSet(a, f);
+        result.getPointsToSet(a, f);
+        assertEquals(0, result.getCacheHits());
+        assertEquals(2, result.getCacheMisses());
+    }
+
+    @Test
+    public void testFieldPointsToUnion() {
+        CIPTAResult result = analyze();
+        // both objects pointed to by a have field f pointing to
+        // the object pointed to by b, which is yielded only once
+        Set<Obj> af = result.getPointsToSet(getVar("a"), getField("f"));
+        Set<Obj> b = result.getPointsToSet(getVar("b"));
+        List<Obj> objs = new ArrayList<>();
+        af.forEach(objs::add);
+        assertEquals(new ArrayList<>(b), objs);
+        assertEquals(1, af.size());
+        assertEquals(b, af);
+        // only one of the objects has field g pointing to an object
+        Set<Obj> ag = result.getPointsToSet(getVar("a"), getField("g"));
+        assertEquals(result.getPointsToSet(getVar("y")), ag);
+    }
+
+    private static CIPTAResult analyze() {
+        Tests.testCIPTA(DIR, "FieldUnion");
+        return World.get().getResult(CIPTA.ID);
+    }
+
+    private static Var getVar(String name) {
+        return World.get().getMainMethod().getIR().getVars()
+                .stream()
+                .filter(v -> v.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static JField getField(String name) {
+        return World.get().getClassHierarchy()
+                .getClass("A").getDeclaredField(name);
+    }
+}
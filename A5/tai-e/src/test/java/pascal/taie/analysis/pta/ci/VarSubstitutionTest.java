@@ -0,0 +1,51 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import org.junit.Test;
+import pascal.taie.World;
+import pascal.taie.analysis.Tests;
+
+import static org.junit.Assert.assertTrue;
+
+public class VarSubstitutionTest {
+
+    private static final String DIR = "cipta";
+
+    @Test
+    public void testCopyChainAndCycle() {
+        // the results with and without substitution are compared
+        // with the same expected results
+        Tests.testCIPTA(DIR, "CopyChain", "var-substitution:false");
+        int nodes = getNumberOfPFGNodes();
+        Tests.testCIPTA(DIR, "CopyChain");
+        int substitutedNodes = getNumberOfPFGNodes();
+        assertTrue("PFG nodes: " + nodes + " -> " + substitutedNodes,
+                substitutedNodes < nodes);
+    }
+
+    private static int getNumberOfPFGNodes() {
+        CIPTAResult result = World.get().getResult(CIPTA.ID);
+        return result.getPointerFlowGraph().getNumberOfNodes();
+    }
+}
@@ -0,0 +1,24 @@
+public class CopyChain {
+
+    public static void main(String[] args) {
+        // a1, a2, a3 and a4 are connected by a chain of copies
+        A a1 = new A();
+        A a2 = a1;
+        A a3 = a2;
+        A a4 = a3;
+        // b1, b2 and b3 are connected by a cycle of copies
+        B b1 = new B();
+        B b2 = b1;
+        B b3 = b2;
+        b1 = b3;
+        a4.f = b1;
+        B x = a1.f;
+    }
+}
+
+class A {
+    B f;
+}
+
+class B {
+}
@@ -0,0 +1,24 @@
+public class FieldUnion {
+
+    public static void main(String[] args) {
+        B b = new B();
+        A a1 = new A();
+        a1.f = b;
+        A a2 = new A();
+        a2.f = b;
+        a2.g = new B();
+        // a points to both A objects, whose fields f point to the same B
+        A a = a1;
+        a = a2;
+        B x = a.f;
+        B y = a.g;
+    }
+}
+
+class A {
+    B f;
+    B g;
+}
+
+class B {
+}
@@ -0,0 +1,26 @@
+class Mahjong {
+
+    public static void main(String[] args) {
+        // a1 and a2 point to type-consistent objects (their fields f
+        // point to B objects only), thus they are merged, and so are
+        // the two B objects, while a3 (whose f points to a C) is not
+        A a1 = new A();
+        a1.f = new B();
+        A a2 = new A();
+        a2.f = new B();
+        A a3 = new A();
+        a3.f = new C();
+        Object x = a1.f;
+        Object y = a3.f;
+    }
+}
+
+class A {
+    Object f;
+}
+
+class B {
+}
+
+class C {
+}
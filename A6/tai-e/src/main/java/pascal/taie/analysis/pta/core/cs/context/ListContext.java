@@ -22,36 +22,93 @@
 
 package pascal.taie.analysis.pta.core.cs.context;
 
+import pascal.taie.World;
 import pascal.taie.util.AnalysisException;
+import pascal.taie.util.Indexable;
+import pascal.taie.util.collection.Maps;
 
-import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * List-based contexts. Each context is represented by a list of context elements.
+ * <p>
+ * Contexts are interned in a trie: each context consists of the pointer to
+ * its parent (i.e., the context without its last element) and its last
+ * element, and there is exactly one context instance for each list of
+ * elements. Thus, contexts are compared by identity, and their hash codes
+ * are computed only once. Each context also has a unique index, which
+ * can be used as a compact key of the context.
+ * <p>
+ * The trie (and the counter of indexes) belongs to the current {@link World}.
+ * When a new World is created, e.g., for the next analysis run, a new trie
+ * is started, so that the contexts of previous Worlds (and the program
+ * elements they refer to) can be garbage-collected, and the indexes of
+ * contexts stay dense.
  *
  * @param <T> type of context elements
  */
-public class ListContext<T> implements Context {
+public class ListContext<T> implements Context, Indexable {
 
     /**
-     * The empty context.
+     * The root of the trie of the current World.
      */
-    private static final ListContext<?> EMPTY_CONTEXT = new ListContext<>(List.of());
+    private static volatile Root root;
 
     /**
-     * List of elements in the context.
+     * Counter of indexes of the contexts in the same trie.
      */
-    private final List<T> elements;
+    private final AtomicInteger counter;
 
-    private ListContext(List<T> elements) {
-        this.elements = elements;
+    /**
+     * The context without the last element, or null for the empty context.
+     */
+    private final ListContext<T> parent;
+
+    /**
+     * The last element in the context.
+     */
+    private final T elem;
+
+    private final int length;
+
+    private final int hashCode;
+
+    private final int index;
+
+    /**
+     * Map from an element to the context that appends it to this context.
+     * Created on demand.
+     */
+    private Map<T, ListContext<T>> children;
+
+    /**
+     * The context without the first element. Computed on demand.
+     */
+    private ListContext<T> tail;
+
+    private ListContext(ListContext<T> parent, T elem) {
+        this.parent = parent;
+        this.elem = elem;
+        if (parent == null) {
+            length = 0;
+            hashCode = 1;
+            counter = new AtomicInteger();
+        } else {
+            length = parent.length + 1;
+            // consistent with List.hashCode()
+            hashCode = 31 * parent.hashCode + elem.hashCode();
+            counter = parent.counter;
+        }
+        index = counter.getAndIncrement();
     }
 
     /**
      * @return an empty context.
      */
     public static Context make() {
-        return EMPTY_CONTEXT;
+        return empty();
     }
 
     /**
@@ -59,43 +116,136 @@ public class ListContext<T> implements Context {
      */
     @SafeVarargs
     public static <T> Context make(T... elements) {
-        return elements.length == 0 ?
-                EMPTY_CONTEXT : new ListContext<>(List.of(elements));
+        ListContext<T> context = empty();
+        for (T elem : elements) {
+            context = context.getChild(elem);
+        }
+        return context;
+    }
+
+    /**
+     * Appends an element to a context, and keeps the last at most
+     * {@code limit} elements of the result, e.g., appending c to [a, b]
+     * with limit 2 gives [b, c].
+     *
+     * @return the k-limited context after appending given element.
+     */
+    public static <T> Context append(Context context, T elem, int limit) {
+        if (limit == 0) {
+            return empty();
+        }
+        ListContext<T> result = truncate(cast(context), limit - 1);
+        return result.getChild(elem);
+    }
+
+    /**
+     * @return the context that consists of the last at most
+     * {@code limit} elements of given context.
+     */
+    public static Context truncate(Context context, int limit) {
+        return truncate(cast(context), limit);
+    }
+
+    private static <T> ListContext<T> truncate(ListContext<T> context, int limit) {
+        while (context.length > limit) {
+            context = context.getTail();
+        }
+        return context;
+    }
+
+    /**
+     * @return the empty context of the current World.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> ListContext<T> empty() {
+        World world = World.get();
+        Root r = root;
+        if (r == null || r.world() != world) {
+            synchronized (ListContext.class) {
+                r = root;
+                if (r == null || r.world() != world) {
+                    r = new Root(world, new ListContext<>(null, null));
+                    root = r;
+                }
+            }
+        }
+        return (ListContext<T>) r.context();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ListContext<T> cast(Context context) {
+        return (ListContext<T>) context;
+    }
+
+    /**
+     * @return the canonical context that appends elem to this context.
+     */
+    private synchronized ListContext<T> getChild(T elem) {
+        if (children == null) {
+            children = Maps.newHybridMap();
+        }
+        return children.computeIfAbsent(elem, e -> new ListContext<>(this, e));
+    }
+
+    /**
+     * @return the context without the first element of this context.
+     */
+    private ListContext<T> getTail() {
+        ListContext<T> t = tail;
+        if (t == null) {
+            // the tail of a context of length 1 is the root of its trie
+            t = length == 1 ? parent : parent.getTail().getChild(elem);
+            tail = t;
+        }
+        return t;
+    }
+
+    @Override
+    public int getIndex() {
+        return index;
     }
 
     @Override
     public int getLength() {
-        return elements.size();
+        return length;
     }
 
     @Override
     public Object getElementAt(int i) {
-        if (i >= elements.size()) {
+        if (i >= length) {
             throw new AnalysisException(
                     "Context " + this + " doesn't have " + i + "-th element");
         }
-        return elements.get(i);
+        ListContext<T> context = this;
+        for (int j = length - 1; j > i; --j) {
+            context = context.parent;
+        }
+        return context.elem;
     }
 
     @Override
     public boolean equals(Object o) {
-        if (this == o) {
-            return true;
-        }
-        if (o == null || getClass() != o.getClass()) {
-            return false;
-        }
-        ListContext<?> that = (ListContext<?>) o;
-        return elements.equals(that.elements);
+        // contexts are interned
+        return this == o;
     }
 
     @Override
     public int hashCode() {
-        return elements.hashCode();
+        return hashCode;
     }
 
     @Override
     public String toString() {
-        return elements.toString();
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (int i = 0; i < length; ++i) {
+            joiner.add(String.valueOf(getElementAt(i)));
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * The empty context of a World.
+     */
+    private record Root(World world, ListContext<?> context) {
     }
 }
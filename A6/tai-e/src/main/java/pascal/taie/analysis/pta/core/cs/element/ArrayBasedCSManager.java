@@ -0,0 +1,361 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.element;
+
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.Indexable;
+import pascal.taie.util.collection.Maps;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+/**
+ * CSManager that stores context-sensitive elements in per-element tables
+ * keyed by context indexes.
+ * <p>
+ * For each variable, object, call site and method, its context-sensitive
+ * elements are kept in a small open-addressing table whose keys are the
+ * indexes of contexts (see {@link Indexable}), so that looking up an element
+ * takes one map lookup of the base element plus probing an int array,
+ * instead of nested hash map lookups. Instance field and array index
+ * pointers are stored in their base {@link CSObj}s directly.
+ * The collections returned by the getters are views, and are not copied.
+ */
+public class ArrayBasedCSManager implements CSManager {
+
+    private final Map<Var, ContextTable<CSVar>> vars = Maps.newMap();
+
+    private final Map<Obj, ContextTable<CSObj>> objs = Maps.newMap();
+
+    private final Map<Invoke, ContextTable<CSCallSite>> callSites = Maps.newMap();
+
+    private final Map<JMethod, ContextTable<CSMethod>> methods = Maps.newMap();
+
+    private final Map<JField, StaticField> staticFields = Maps.newMap();
+
+    /**
+     * CS objects indexed by {@link CSObj#getIndex()}.
+     */
+    private final List<CSObj> csObjs = new ArrayList<>();
+
+    /**
+     * Indexes of contexts which are not {@link Indexable}.
+     */
+    private final Map<Context, Integer> contextIndexes = Maps.newMap();
+
+    private int nCSVars;
+
+    private int nInstanceFields;
+
+    private int nArrayIndexes;
+
+    /**
+     * Makes the points-to sets of the pointers.
+     */
+    private final PointsToSetFactory ptsFactory;
+
+    public ArrayBasedCSManager(PointsToSetFactory ptsFactory) {
+        this.ptsFactory = ptsFactory;
+    }
+
+    @Override
+    public CSVar getCSVar(Context context, Var var) {
+        return vars.computeIfAbsent(var, v -> new ContextTable<>())
+                .computeIfAbsent(context, indexOf(context),
+                        c -> {
+                            ++nCSVars;
+                            return initializePointsToSet(new CSVar(var, c));
+                        });
+    }
+
+    @Override
+    public CSObj getCSObj(Context heapContext, Obj obj) {
+        return objs.computeIfAbsent(obj, o -> new ContextTable<>())
+                .computeIfAbsent(heapContext, indexOf(heapContext),
+                        c -> {
+                            CSObj csObj = new CSObj(obj, c, csObjs.size());
+                            csObjs.add(csObj);
+                            return csObj;
+                        });
+    }
+
+    /**
+     * @return the CS object with given index. The CS objects created by
+     * this manager are numbered densely from 0 in the order of creation.
+     */
+    public CSObj getCSObj(int index) {
+        return csObjs.get(index);
+    }
+
+    @Override
+    public CSCallSite getCSCallSite(Context context, Invoke callSite) {
+        return callSites.computeIfAbsent(callSite, cs -> new ContextTable<>())
+                .computeIfAbsent(context, indexOf(context),
+                        c -> new CSCallSite(callSite, c));
+    }
+
+    @Override
+    public CSMethod getCSMethod(Context context, JMethod method) {
+        return methods.computeIfAbsent(method, m -> new ContextTable<>())
+                .computeIfAbsent(context, indexOf(context),
+                        c -> new CSMethod(method, c));
+    }
+
+    @Override
+    public StaticField getStaticField(JField field) {
+        return staticFields.computeIfAbsent(field, f ->
+                initializePointsToSet(new StaticField(f)));
+    }
+
+    @Override
+    public InstanceField getInstanceField(CSObj base, JField field) {
+        if (base.instanceFields == null) {
+            base.instanceFields = Maps.newHybridMap();
+        }
+        InstanceField instanceField = base.instanceFields.get(field);
+        if (instanceField == null) {
+            instanceField = initializePointsToSet(new InstanceField(base, field));
+            base.instanceFields.put(field, instanceField);
+            ++nInstanceFields;
+        }
+        return instanceField;
+    }
+
+    @Override
+    public ArrayIndex getArrayIndex(CSObj array) {
+        if (array.arrayIndex == null) {
+            array.arrayIndex = initializePointsToSet(new ArrayIndex(array));
+            ++nArrayIndexes;
+        }
+        return array.arrayIndex;
+    }
+
+    @Override
+    public Collection<Var> getVars() {
+        return Collections.unmodifiableSet(vars.keySet());
+    }
+
+    @Override
+    public Collection<CSVar> getCSVarsOf(Var var) {
+        ContextTable<CSVar> table = vars.get(var);
+        return table != null ? table.values() : Set.of();
+    }
+
+    @Override
+    public Collection<CSVar> getCSVars() {
+        return new FlatCollection<>(vars.values(),
+                ContextTable::iterator, () -> nCSVars);
+    }
+
+    @Override
+    public Collection<CSObj> getObjects() {
+        return new FlatCollection<>(objs.values(),
+                ContextTable::iterator, csObjs::size);
+    }
+
+    @Override
+    public Collection<StaticField> getStaticFields() {
+        return Collections.unmodifiableCollection(staticFields.values());
+    }
+
+    @Override
+    public Collection<InstanceField> getInstanceFields() {
+        return new FlatCollection<>(getObjects(),
+                o -> o.instanceFields != null ?
+                        o.instanceFields.values().iterator() :
+                        Collections.emptyIterator(),
+                () -> nInstanceFields);
+    }
+
+    @Override
+    public Collection<ArrayIndex> getArrayIndexes() {
+        return new FlatCollection<>(getObjects(),
+                o -> o.arrayIndex != null ?
+                        Collections.singletonList(o.arrayIndex).iterator() :
+                        Collections.emptyIterator(),
+                () -> nArrayIndexes);
+    }
+
+    private int indexOf(Context context) {
+        return context instanceof Indexable indexable ? indexable.getIndex() :
+                contextIndexes.computeIfAbsent(context, c -> contextIndexes.size());
+    }
+
+    private <P extends Pointer> P initializePointsToSet(P pointer) {
+        pointer.setPointsToSet(ptsFactory.make());
+        return pointer;
+    }
+
+    /**
+     * Open-addressing table from context indexes to the context-sensitive
+     * elements of a base element. Most base elements have few contexts,
+     * so the table starts small.
+     */
+    private static class ContextTable<E> {
+
+        /**
+         * Context indexes plus one; 0 represents empty slots.
+         */
+        private int[] keys = new int[2];
+
+        private Object[] values = new Object[2];
+
+        private int size;
+
+        private E computeIfAbsent(Context context, int index,
+                                  Function<Context, E> factory) {
+            int key = index + 1;
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (keys[i] != 0) {
+                if (keys[i] == key) {
+                    @SuppressWarnings("unchecked")
+                    E e = (E) values[i];
+                    return e;
+                }
+                i = (i + 1) & mask;
+            }
+            E e = factory.apply(context);
+            keys[i] = key;
+            values[i] = e;
+            if (++size * 2 > keys.length) {
+                resize();
+            }
+            return e;
+        }
+
+        private void resize() {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new Object[oldValues.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; ++j) {
+                if (oldKeys[j] != 0) {
+                    int i = mix(oldKeys[j]) & mask;
+                    while (keys[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        @SuppressWarnings("unchecked")
+        private Iterator<E> iterator() {
+            return (Iterator<E>) Arrays.stream(values)
+                    .filter(v -> v != null)
+                    .iterator();
+        }
+
+        private Collection<E> values() {
+            return new AbstractCollection<>() {
+                @Override
+                public Iterator<E> iterator() {
+                    return ContextTable.this.iterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+
+    /**
+     * Unmodifiable view that concatenates the elements of multiple sources.
+     */
+    private static class FlatCollection<S, E> extends AbstractCollection<E> {
+
+        private final Collection<S> sources;
+
+        private final Function<S, Iterator<E>> iteratorOf;
+
+        private final IntSupplier size;
+
+        /**
+         * @param iteratorOf the iterator over the elements of a source.
+         * @param size       the total number of elements.
+         */
+        private FlatCollection(Collection<S> sources,
+                               Function<S, Iterator<E>> iteratorOf,
+                               IntSupplier size) {
+            this.sources = sources;
+            this.iteratorOf = iteratorOf;
+            this.size = size;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            Iterator<S> sourceIter = sources.iterator();
+            return new Iterator<>() {
+
+                private Iterator<E> current = Collections.emptyIterator();
+
+                @Override
+                public boolean hasNext() {
+                    while (!current.hasNext() && sourceIter.hasNext()) {
+                        current = iteratorOf.apply(sourceIter.next());
+                    }
+                    return current.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return current.next();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size.getAsInt();
+        }
+    }
+}
@@ -24,17 +24,44 @@ package pascal.taie.analysis.pta.core.cs.element;
 
 import pascal.taie.analysis.pta.core.cs.context.Context;
 import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.language.classes.JField;
+import pascal.taie.util.Indexable;
+
+import java.util.Map;
 
 /**
  * Represents context-sensitive objects.
  */
-public class CSObj extends AbstractCSElement {
+public class CSObj extends AbstractCSElement implements Indexable {
 
     private final Obj obj;
 
+    /**
+     * Instance field pointers of this object. Only used by
+     * {@link ArrayBasedCSManager}, and created on demand.
+     */
+    Map<JField, InstanceField> instanceFields;
+
+    /**
+     * Array index pointer of this object. Only used by
+     * {@link ArrayBasedCSManager}, and created on demand.
+     */
+    ArrayIndex arrayIndex;
+
+    /**
+     * Dense index of this object, or -1 if the object is not numbered
+     * by its CSManager.
+     */
+    private final int index;
+
     CSObj(Obj obj, Context context) {
+        this(obj, context, -1);
+    }
+
+    CSObj(Obj obj, Context context, int index) {
         super(context);
         this.obj = obj;
+        this.index = index;
     }
 
     /**
@@ -44,6 +71,11 @@ public class CSObj extends AbstractCSElement {
         return obj;
     }
 
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
     @Override
     public String toString() {
         return context + ":" + obj;
@@ -0,0 +1,122 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.selector;
+
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
+import pascal.taie.analysis.pta.core.cs.element.CSMethod;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Context selector whose precision can be degraded during the analysis,
+ * e.g., when the analysis exceeds its budget.
+ * <p>
+ * Initially, all methods are analyzed by the precise selector. After some
+ * methods are degraded, their new contexts (and the heap contexts of the
+ * objects allocated in them) are selected by the cheap selector. The facts
+ * computed under the precise contexts are kept, thus the analysis remains
+ * sound, as every call edge is still analyzed under some context.
+ */
+public class DegradableSelector implements ContextSelector {
+
+    private final ContextSelector preciseSelector;
+
+    private final ContextSelector cheapSelector;
+
+    private final Set<JMethod> degradedMethods = Sets.newSet();
+
+    private boolean allDegraded = false;
+
+    /**
+     * Methods whose contexts have been selected by the cheap selector.
+     */
+    private final Set<JMethod> cheapMethods = Sets.newSet();
+
+    public DegradableSelector(ContextSelector preciseSelector,
+                              ContextSelector cheapSelector) {
+        this.preciseSelector = preciseSelector;
+        this.cheapSelector = cheapSelector;
+    }
+
+    /**
+     * Degrades given methods to the cheap selector.
+     */
+    public void degrade(Collection<JMethod> methods) {
+        degradedMethods.addAll(methods);
+    }
+
+    /**
+     * Degrades all methods (including the ones to be reached) to
+     * the cheap selector.
+     */
+    public void degradeAll() {
+        allDegraded = true;
+    }
+
+    public boolean isAllDegraded() {
+        return allDegraded;
+    }
+
+    /**
+     * @return the methods whose contexts have been selected by
+     * the cheap selector after they were degraded.
+     */
+    public Set<JMethod> getDegradedMethods() {
+        return Collections.unmodifiableSet(cheapMethods);
+    }
+
+    @Override
+    public Context getEmptyContext() {
+        return preciseSelector.getEmptyContext();
+    }
+
+    @Override
+    public Context selectContext(CSCallSite callSite, JMethod callee) {
+        return getSelector(callee).selectContext(callSite, callee);
+    }
+
+    @Override
+    public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
+        return getSelector(callee).selectContext(callSite, recv, callee);
+    }
+
+    @Override
+    public Context selectHeapContext(CSMethod method, Obj obj) {
+        return getSelector(method.getMethod()).selectHeapContext(method, obj);
+    }
+
+    private ContextSelector getSelector(JMethod method) {
+        if (allDegraded || degradedMethods.contains(method)) {
+            cheapMethods.add(method);
+            return cheapSelector;
+        }
+        return preciseSelector;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.selector;
+
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.context.ListContext;
+import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
+import pascal.taie.analysis.pta.core.cs.element.CSMethod;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.Map;
+
+/**
+ * Selective context sensitivity, which applies different context
+ * sensitivity variants to different methods according to a plan,
+ * e.g., computed by Scaler or loaded from a file.
+ * <p>
+ * The contexts of a method and the heap contexts of the objects allocated
+ * in it are selected by the selector of the method in the plan, or by
+ * the default selector if the method is absent in the plan.
+ */
+public class SelectiveSelector implements ContextSelector {
+
+    /**
+     * Map from a method to the selector applied to it.
+     */
+    private final Map<JMethod, ContextSelector> plan;
+
+    private final ContextSelector defaultSelector;
+
+    public SelectiveSelector(Map<JMethod, ContextSelector> plan,
+                             ContextSelector defaultSelector) {
+        this.plan = plan;
+        this.defaultSelector = defaultSelector;
+    }
+
+    @Override
+    public Context getEmptyContext() {
+        return ListContext.make();
+    }
+
+    @Override
+    public Context selectContext(CSCallSite callSite, JMethod callee) {
+        return getSelector(callee).selectContext(callSite, callee);
+    }
+
+    @Override
+    public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
+        return getSelector(callee).selectContext(callSite, recv, callee);
+    }
+
+    @Override
+    public Context selectHeapContext(CSMethod method, Obj obj) {
+        return getSelector(method.getMethod()).selectHeapContext(method, obj);
+    }
+
+    private ContextSelector getSelector(JMethod method) {
+        return plan.getOrDefault(method, defaultSelector);
+    }
+}
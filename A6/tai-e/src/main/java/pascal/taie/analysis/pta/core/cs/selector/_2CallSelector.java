@@ -44,30 +44,18 @@ public class _2CallSelector implements ContextSelector {
     @Override
     public Context selectContext(CSCallSite callSite, JMethod callee) {
         // TODO - finish me
-        Context callSiteContext = callSite.getContext();
-        if (callSiteContext.getLength() == 0) {
-            return ListContext.make(callSite.getCallSite());
-        }
-        return ListContext.make(callSiteContext.getElementAt(callSiteContext.getLength() - 1), callSite.getCallSite());
+        return ListContext.append(callSite.getContext(), callSite.getCallSite(), 2);
     }
 
     @Override
     public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
         // TODO - finish me
-        Context callSiteContext = callSite.getContext();
-        if (callSiteContext.getLength() == 0) {
-            return ListContext.make(callSite.getCallSite());
-        }
-        return ListContext.make(callSiteContext.getElementAt(callSiteContext.getLength() - 1), callSite.getCallSite());
+        return ListContext.append(callSite.getContext(), callSite.getCallSite(), 2);
     }
 
     @Override
     public Context selectHeapContext(CSMethod method, Obj obj) {
         // TODO - finish me
-        Context heapContext = method.getContext();
-        if (heapContext.getLength() == 0) {
-            return getEmptyContext();
-        }
-        return ListContext.make(heapContext.getElementAt(heapContext.getLength() - 1));
+        return ListContext.truncate(method.getContext(), 1);
     }
 }
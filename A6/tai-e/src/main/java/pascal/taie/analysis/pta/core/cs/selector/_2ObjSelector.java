@@ -49,21 +49,12 @@ public class _2ObjSelector implements ContextSelector {
     @Override
     public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
         // TODO - finish me
-        Context objContext = recv.getContext();
-        int length = objContext.getLength();
-        if (length == 0) {
-            return ListContext.make(recv.getObject());
-        }
-        return ListContext.make(objContext.getElementAt(length - 1), recv.getObject());
+        return ListContext.append(recv.getContext(), recv.getObject(), 2);
     }
 
     @Override
     public Context selectHeapContext(CSMethod method, Obj obj) {
         // TODO - finish me
-        Context heapContext = method.getContext();
-        if (heapContext.getLength() == 0) {
-            return getEmptyContext();
-        }
-        return ListContext.make(heapContext.getElementAt(heapContext.getLength() - 1));
+        return ListContext.truncate(method.getContext(), 1);
     }
 }
@@ -50,21 +50,13 @@ public class _2TypeSelector implements ContextSelector {
     @Override
     public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
         // TODO - finish me
-        Context objContext = recv.getContext();
-        int length = objContext.getLength();
-        if (length == 0) {
-            return ListContext.make(recv.getObject().getContainerType());
-        }
-        return ListContext.make(objContext.getElementAt(length - 1), recv.getObject().getContainerType());
+        return ListContext.append(recv.getContext(),
+                recv.getObject().getContainerType(), 2);
     }
 
     @Override
     public Context selectHeapContext(CSMethod method, Obj obj) {
         // TODO - finish me
-        Context heapContext = method.getContext();
-        if (heapContext.getLength() == 0) {
-            return getEmptyContext();
-        }
-        return ListContext.make(heapContext.getElementAt(heapContext.getLength() - 1));
+        return ListContext.truncate(method.getContext(), 1);
     }
 }
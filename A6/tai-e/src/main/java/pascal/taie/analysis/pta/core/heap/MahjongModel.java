@@ -0,0 +1,172 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.heap;
+
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mahjong-style heap model, which merges type-consistent objects.
+ * <p>
+ * Given the result of a cheap pre-analysis (usually allocation-site-based
+ * context-insensitive pointer analysis), this model builds the field
+ * points-to graph (FPG) of the objects, and merges the objects
+ * allocated with the same type whose fields (transitively) point to
+ * objects of the same types. Such objects are indistinguishable for
+ * type-dependent clients, e.g., call graph construction and cast
+ * checking, so merging them hardly loses precision of those clients.
+ * <p>
+ * Type-consistency is computed by partition refinement over the FPG:
+ * objects are first partitioned by their types, and then two objects
+ * stay in the same partition only if, for every field, they point to
+ * objects in the same set of partitions. This is a conservative
+ * approximation of the automaton equivalence used by Mahjong.
+ */
+public class MahjongModel extends AbstractHeapModel {
+
+    /**
+     * Pseudo field that represents the elements of arrays.
+     */
+    private static final Object ARRAY_INDEX = "[*]";
+
+    /**
+     * Map from an allocation site to the merged object it belongs to.
+     * Allocation sites whose objects are not merged are absent.
+     */
+    private final Map<New, MergedObj> mergedObjs = Maps.newMap();
+
+    public MahjongModel(AnalysisOptions options, PointerAnalysisResult preResult) {
+        super(options);
+        merge(preResult);
+    }
+
+    @Override
+    protected Obj doGetObj(New allocSite) {
+        MergedObj mergedObj = mergedObjs.get(allocSite);
+        if (mergedObj == null) {
+            return getNewObj(allocSite);
+        }
+        mergedObj.addRepresentedObj(getNewObj(allocSite));
+        return mergedObj;
+    }
+
+    /**
+     * @return the number of allocation sites whose objects are merged.
+     */
+    public int getNumberOfMergedSites() {
+        return mergedObjs.size();
+    }
+
+    private void merge(PointerAnalysisResult preResult) {
+        Map<Obj, MultiMap<Object, Obj>> fpg = buildFPG(preResult);
+        // initial partitions: objects allocated with the same type
+        Map<Obj, Integer> partition = Maps.newMap();
+        Map<Object, Integer> ids = Maps.newMap();
+        for (Obj obj : preResult.getObjects()) {
+            Object key = obj.getAllocation() instanceof New ?
+                    obj.getType() : obj;
+            partition.put(obj, ids.computeIfAbsent(key, k -> ids.size()));
+        }
+        // refine partitions until the number of partitions is stable
+        int count;
+        do {
+            count = ids.size();
+            ids.clear();
+            Map<Obj, Integer> refined = Maps.newMap();
+            for (Obj obj : partition.keySet()) {
+                Map<Object, Set<Integer>> fieldPartitions = Maps.newMap();
+                fpg.getOrDefault(obj, Maps.newMultiMap()).forEach(
+                        (field, pointee) -> fieldPartitions
+                                .computeIfAbsent(field, f -> Sets.newHybridSet())
+                                .add(partition.getOrDefault(pointee, -1)));
+                List<Object> signature = List.of(
+                        partition.get(obj), fieldPartitions);
+                refined.put(obj, ids.computeIfAbsent(signature, k -> ids.size()));
+            }
+            partition.putAll(refined);
+        } while (ids.size() != count);
+        // merge the objects of each non-singleton partition
+        MultiMap<Integer, Obj> members = Maps.newMultiMap();
+        partition.forEach((obj, id) -> {
+            if (obj.getAllocation() instanceof New) {
+                members.put(id, obj);
+            }
+        });
+        // the merged objects are numbered in the order of their first
+        // objects, as the partition ids depend on the iteration order
+        // of hash-based collections
+        Comparator<Obj> byName = Comparator.comparing(Obj::toString);
+        List<List<Obj>> groups = members.keySet()
+                .stream()
+                .map(id -> members.get(id).stream().sorted(byName).toList())
+                .filter(objs -> objs.size() > 1)
+                .sorted(Comparator.comparing(objs -> objs.get(0), byName))
+                .toList();
+        for (int i = 0; i < groups.size(); ++i) {
+            List<Obj> objs = groups.get(i);
+            Obj first = objs.get(0);
+            MergedObj mergedObj = new MergedObj(first.getType(),
+                    "Mahjong " + first.getType() + "#" + i);
+            objs.forEach(o -> mergedObjs.put((New) o.getAllocation(), mergedObj));
+        }
+    }
+
+    /**
+     * Builds field points-to graph from the result of pre-analysis.
+     */
+    private static Map<Obj, MultiMap<Object, Obj>> buildFPG(
+            PointerAnalysisResult preResult) {
+        Map<Obj, MultiMap<Object, Obj>> fpg = Maps.newMap();
+        preResult.getCallGraph().reachableMethods().forEach(method -> {
+            for (Stmt stmt : method.getIR()) {
+                if (stmt instanceof StoreField store &&
+                        store.getFieldAccess() instanceof InstanceFieldAccess access) {
+                    Set<Obj> pts = preResult.getPointsToSet(store.getRValue());
+                    preResult.getPointsToSet(access.getBase()).forEach(base ->
+                            fpg.computeIfAbsent(base, o -> Maps.newMultiMap())
+                                    .putAll(store.getFieldRef().resolve(), pts));
+                } else if (stmt instanceof StoreArray store) {
+                    Set<Obj> pts = preResult.getPointsToSet(store.getRValue());
+                    preResult.getPointsToSet(store.getArrayAccess().getBase())
+                            .forEach(base ->
+                                    fpg.computeIfAbsent(base, o -> Maps.newMultiMap())
+                                            .putAll(ARRAY_INDEX, pts));
+                }
+            }
+        });
+        return fpg;
+    }
+}
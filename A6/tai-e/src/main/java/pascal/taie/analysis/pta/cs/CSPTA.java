@@ -22,19 +22,36 @@
 
 package pascal.taie.analysis.pta.cs;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
 import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.core.cs.selector.CISelector;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
+import pascal.taie.analysis.pta.core.cs.selector.DegradableSelector;
+import pascal.taie.analysis.pta.core.cs.selector.SelectiveSelector;
 import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.MahjongModel;
+import pascal.taie.analysis.pta.core.heap.TypeBasedModel;
 import pascal.taie.analysis.pta.plugin.ResultProcessor;
+import pascal.taie.analysis.pta.toolkit.scaler.Scaler;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.config.AnalysisOptions;
 import pascal.taie.config.ConfigException;
+import pascal.taie.language.classes.JMethod;
 import pascal.taie.util.Strings;
+import pascal.taie.util.collection.Maps;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Context-sensitive pointer analysis.
@@ -43,6 +60,13 @@ public class CSPTA extends ProgramAnalysis {
 
     public static final String ID = "cspta";
 
+    private static final Logger logger = LogManager.getLogger(CSPTA.class);
+
+    /**
+     * Result of context-insensitive pre-analysis, computed on demand.
+     */
+    private PointerAnalysisResult preResult;
+
     public CSPTA(AnalysisConfig config) {
         super(config);
     }
@@ -50,15 +74,125 @@ public class CSPTA extends ProgramAnalysis {
     @Override
     public PointerAnalysisResult analyze() {
         AnalysisOptions options = getOptions();
-        Solver solver = new Solver(options,
-                new AllocationSiteBasedModel(options),
-                getContextSelector(options.getString("cs")));
+        ContextSelector selector = getContextSelector(options);
+        if (options.get("time-budget") != null ||
+                options.get("memory-budget") != null) {
+            // when the budget is exceeded, the analysis is degraded to
+            // the variant given by option "degrade-to" (CI by default)
+            String degradeTo = options.get("degrade-to") != null ?
+                    options.getString("degrade-to") : "ci";
+            selector = new DegradableSelector(selector,
+                    getContextSelector(degradeTo));
+        }
+        Solver solver = new Solver(options, getHeapModel(options), selector);
         solver.solve();
         PointerAnalysisResult result = solver.getResult();
+        if (selector instanceof DegradableSelector degradable) {
+            // keeps the degraded methods, so that clients can tell
+            // which parts of the result are less precise
+            result.storeResult(DegradableSelector.class.getName(),
+                    degradable.getDegradedMethods());
+        }
         ResultProcessor.process(options, result);
         return result;
     }
 
+    /**
+     * Creates the heap model specified by option "heap-model", i.e.,
+     * "allocation-site" (default), "type" or "mahjong".
+     */
+    private HeapModel getHeapModel(AnalysisOptions options) {
+        String heapModel = options.get("heap-model") != null ?
+                options.getString("heap-model") : "allocation-site";
+        return switch (heapModel) {
+            case "allocation-site" -> new AllocationSiteBasedModel(options);
+            case "type" -> new TypeBasedModel(options);
+            case "mahjong" -> new MahjongModel(options, getPreResult(options));
+            default -> throw new ConfigException(
+                    "Unexpected heap model: " + heapModel);
+        };
+    }
+
+    /**
+     * Creates the context selector specified by option "cs", which is
+     * either a context sensitivity variant (e.g., "ci" and "2-obj"),
+     * or selective context sensitivity: "scaler" (the plan is computed
+     * by Scaler, whose total scalability threshold can be given by option
+     * "scaler-tst"). If option "cs-plan" is given, the plan is loaded from
+     * the file it names instead, and option "cs" is ignored.
+     */
+    private ContextSelector getContextSelector(AnalysisOptions options) {
+        if (options.get("cs-plan") != null) {
+            return loadPlan(Path.of(options.getString("cs-plan")));
+        }
+        String cs = options.getString("cs");
+        if (cs.equals("scaler")) {
+            PointerAnalysisResult result = getPreResult(options);
+            Scaler scaler = options.get("scaler-tst") != null ?
+                    new Scaler(result, ((Number) options.get("scaler-tst")).longValue()) :
+                    new Scaler(result);
+            Map<JMethod, ContextSelector> plan = Maps.newMap();
+            Map<String, ContextSelector> selectors = Maps.newMap();
+            scaler.selectContext().forEach((method, variant) ->
+                    plan.put(method, selectors.computeIfAbsent(
+                            variant, CSPTA::getContextSelector)));
+            return new SelectiveSelector(plan, new CISelector());
+        } else {
+            return getContextSelector(cs);
+        }
+    }
+
+    /**
+     * Loads context sensitivity plan from given file. Each line of the file
+     * consists of a context sensitivity variant and a method signature
+     * separated by whitespace, e.g., "2-obj &lt;A: void foo()&gt;".
+     * Empty lines and lines starting with '#' are ignored. The methods
+     * absent in the plan are analyzed context-insensitively.
+     */
+    private static ContextSelector loadPlan(Path file) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read plan " + file, e);
+        }
+        Map<JMethod, ContextSelector> plan = Maps.newMap();
+        Map<String, ContextSelector> selectors = Maps.newMap();
+        for (String line : lines) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] splits = line.split("\\s+", 2);
+            if (splits.length != 2) {
+                throw new ConfigException("Invalid line in plan " + file + ": " + line);
+            }
+            JMethod method = World.get().getClassHierarchy().getMethod(splits[1]);
+            if (method == null) {
+                logger.warn("Method in plan {} is absent: {}", file, splits[1]);
+                continue;
+            }
+            plan.put(method, selectors.computeIfAbsent(
+                    splits[0], CSPTA::getContextSelector));
+        }
+        return new SelectiveSelector(plan, new CISelector());
+    }
+
+    /**
+     * @return the result of allocation-site-based context-insensitive
+     * pre-analysis, which is shared by the heap model and context selector.
+     */
+    private PointerAnalysisResult getPreResult(AnalysisOptions options) {
+        if (preResult == null) {
+            Solver preSolver = new Solver(options,
+                    new AllocationSiteBasedModel(options),
+                    new CISelector(), true);
+            preSolver.solve();
+            preResult = preSolver.getResult();
+        }
+        return preResult;
+    }
+
     private static ContextSelector getContextSelector(String cs) {
         if (cs.equals("ci")) {
             return new CISelector();
@@ -0,0 +1,593 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.cs;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.analysis.graph.callgraph.CallKind;
+import pascal.taie.analysis.graph.callgraph.Edge;
+import pascal.taie.analysis.pta.core.cs.CSCallGraph;
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.context.ListContext;
+import pascal.taie.analysis.pta.core.cs.element.ArrayIndex;
+import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
+import pascal.taie.analysis.pta.core.cs.element.CSManager;
+import pascal.taie.analysis.pta.core.cs.element.CSMethod;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.cs.element.CSVar;
+import pascal.taie.analysis.pta.core.cs.element.InstanceField;
+import pascal.taie.analysis.pta.core.cs.element.Pointer;
+import pascal.taie.analysis.pta.core.cs.element.StaticField;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.pts.PointsToSet;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
+import pascal.taie.config.Options;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Saves the state of {@link Solver}, i.e., reachable methods, call graph,
+ * points-to sets, pointer flow graph and pending work-list entries,
+ * to a binary snapshot, and restores the state from the snapshot.
+ * <p>
+ * Methods, fields and types are encoded by their signatures (names),
+ * variables and statements by their indexes in IR, and contexts,
+ * objects (with or without contexts) and pointers are interned, so that
+ * each of them is written only once. A snapshot can only be restored on the same program with
+ * the same heap model and context sensitivity, which is checked via
+ * the tag of the snapshot. The tag also contains a fingerprint of
+ * the program, so that a snapshot is not restored after the program
+ * is changed.
+ */
+class Checkpoint {
+
+    private static final Logger logger = LogManager.getLogger(Checkpoint.class);
+
+    private static final int MAGIC = 0x54414945;
+
+    private static final int VERSION = 2;
+
+    /**
+     * Kinds of context elements.
+     */
+    private static final byte INVOKE = 0, OBJ = 1, TYPE = 2;
+
+    /**
+     * Kinds of pointers.
+     */
+    private static final byte VAR = 0, STATIC_FIELD = 1,
+            INSTANCE_FIELD = 2, ARRAY_INDEX = 3;
+
+    private final Path file;
+
+    /**
+     * Identifies the configuration that produces the snapshot.
+     */
+    private final String tag;
+
+    /**
+     * @param tag identifies the configuration of the analysis. The
+     *            fingerprint of the program is appended to it.
+     */
+    Checkpoint(Path file, String tag) {
+        this.file = file;
+        this.tag = tag + ";program=" + getProgramFingerprint();
+    }
+
+    /**
+     * @return a fingerprint of the analyzed program, i.e., a hash of
+     * the Java version, and the paths, sizes and last modified times
+     * of the files in the class path.
+     */
+    private static String getProgramFingerprint() {
+        Options options = World.get().getOptions();
+        long hash = options.getJavaVersion();
+        String classPath = options.getClassPath();
+        if (classPath != null) {
+            for (String entry : classPath.split(File.pathSeparator)) {
+                Path path = Path.of(entry);
+                if (!Files.exists(path)) {
+                    continue;
+                }
+                try (Stream<Path> files = Files.walk(path)) {
+                    for (Path f : files.filter(Files::isRegularFile).sorted().toList()) {
+                        hash = 31 * hash + f.toString().hashCode();
+                        hash = 31 * hash + Files.size(f);
+                        hash = 31 * hash + Files.getLastModifiedTime(f).toMillis();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(
+                            "Failed to compute fingerprint of " + path, e);
+                }
+            }
+        }
+        return Long.toHexString(hash);
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Writes the state of the solver to the snapshot file.
+     * The snapshot is first written to a temporary file and then moved
+     * to the target file, so that an interrupted save does not destroy
+     * the previous snapshot.
+     */
+    void save(CSManager csManager, CSCallGraph callGraph,
+              PointerFlowGraph pointerFlowGraph, WorkList workList) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            Encoder encoder = new Encoder(out);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(tag);
+            // call graph
+            writeMethods(encoder, callGraph.entryMethods().toList());
+            writeMethods(encoder, callGraph.reachableMethods().toList());
+            List<Edge<CSCallSite, CSMethod>> edges = callGraph.edges().toList();
+            out.writeInt(edges.size());
+            for (Edge<CSCallSite, CSMethod> edge : edges) {
+                out.writeByte(edge.getKind().ordinal());
+                encoder.writeContext(edge.getCallSite().getContext());
+                encoder.writeStmt(edge.getCallSite().getCallSite());
+                writeMethod(encoder, edge.getCallee());
+            }
+            // points-to sets
+            List<Pointer> pointers = new ArrayList<>();
+            pointers.addAll(csManager.getCSVars());
+            pointers.addAll(csManager.getStaticFields());
+            pointers.addAll(csManager.getInstanceFields());
+            pointers.addAll(csManager.getArrayIndexes());
+            pointers.removeIf(p -> p.getPointsToSet().isEmpty());
+            out.writeInt(pointers.size());
+            for (Pointer pointer : pointers) {
+                encoder.writePointer(pointer);
+                encoder.writePointsToSet(pointer.getPointsToSet());
+            }
+            // pointer flow graph
+            Set<Pointer> sources = pointerFlowGraph.getSources();
+            out.writeInt(sources.size());
+            for (Pointer source : sources) {
+                encoder.writePointer(source);
+                Set<Pointer> succs = pointerFlowGraph.getSuccsOf(source);
+                out.writeInt(succs.size());
+                for (Pointer succ : succs) {
+                    encoder.writePointer(succ);
+                }
+            }
+            // work list
+            Collection<WorkList.Entry> entries = workList.getEntries();
+            out.writeInt(entries.size());
+            for (WorkList.Entry entry : entries) {
+                encoder.writePointer(entry.pointer());
+                encoder.writePointsToSet(entry.pointsToSet());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save checkpoint to " + tmp, e);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save checkpoint to " + file, e);
+        }
+    }
+
+    private static void writeMethods(Encoder encoder, List<CSMethod> csMethods)
+            throws IOException {
+        encoder.out.writeInt(csMethods.size());
+        for (CSMethod csMethod : csMethods) {
+            writeMethod(encoder, csMethod);
+        }
+    }
+
+    private static void writeMethod(Encoder encoder, CSMethod csMethod)
+            throws IOException {
+        encoder.writeContext(csMethod.getContext());
+        encoder.writeMethod(csMethod.getMethod());
+    }
+
+    /**
+     * Restores the state of the solver from the snapshot file.
+     *
+     * @return true if the state is restored, or false if the snapshot
+     * file does not exist or is produced by a different configuration.
+     */
+    boolean restore(CSManager csManager, PointsToSetFactory ptsFactory,
+                    HeapModel heapModel, CSCallGraph callGraph,
+                    PointerFlowGraph pointerFlowGraph, WorkList workList) {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warn("Checkpoint {} is in unknown format, ignored", file);
+                return false;
+            }
+            String savedTag = in.readUTF();
+            if (!savedTag.equals(tag)) {
+                logger.warn("Checkpoint {} is produced by a different" +
+                        " program or configuration ({}), ignored", file, savedTag);
+                return false;
+            }
+            Decoder decoder = new Decoder(in, csManager, ptsFactory, heapModel);
+            // call graph
+            for (CSMethod csMethod : readMethods(decoder)) {
+                callGraph.addEntryMethod(csMethod);
+            }
+            for (CSMethod csMethod : readMethods(decoder)) {
+                callGraph.addReachableMethod(csMethod);
+            }
+            CallKind[] kinds = CallKind.values();
+            for (int i = in.readInt(); i > 0; --i) {
+                CallKind kind = kinds[in.readByte()];
+                CSCallSite csCallSite = csManager.getCSCallSite(
+                        decoder.readContext(), (Invoke) decoder.readStmt());
+                callGraph.addEdge(new Edge<>(kind, csCallSite,
+                        readMethod(decoder)));
+            }
+            // points-to sets
+            for (int i = in.readInt(); i > 0; --i) {
+                Pointer pointer = decoder.readPointer();
+                decoder.readPointsToSet()
+                        .forEach(pointer.getPointsToSet()::addObject);
+            }
+            // pointer flow graph
+            for (int i = in.readInt(); i > 0; --i) {
+                Pointer source = decoder.readPointer();
+                for (int j = in.readInt(); j > 0; --j) {
+                    pointerFlowGraph.addEdge(source, decoder.readPointer());
+                }
+            }
+            // work list
+            for (int i = in.readInt(); i > 0; --i) {
+                workList.addEntry(decoder.readPointer(),
+                        decoder.readPointsToSet());
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to restore checkpoint from " + file, e);
+        }
+    }
+
+    private static List<CSMethod> readMethods(Decoder decoder) throws IOException {
+        int size = decoder.in.readInt();
+        List<CSMethod> csMethods = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            csMethods.add(readMethod(decoder));
+        }
+        return csMethods;
+    }
+
+    private static CSMethod readMethod(Decoder decoder) throws IOException {
+        Context context = decoder.readContext();
+        return decoder.csManager.getCSMethod(context, decoder.readMethod());
+    }
+
+    /**
+     * Writes program elements to the snapshot. Each interned element
+     * is written as its id, followed by its content if it is written
+     * for the first time.
+     */
+    private static class Encoder {
+
+        private final DataOutputStream out;
+
+        private final Map<String, Integer> strings = Maps.newMap();
+
+        private final Map<Context, Integer> contexts = Maps.newMap();
+
+        private final Map<Obj, Integer> objs = Maps.newMap();
+
+        private final Map<CSObj, Integer> csObjs = Maps.newMap();
+
+        private final Map<Pointer, Integer> pointers = Maps.newMap();
+
+        private Encoder(DataOutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * Writes the id of the element.
+         *
+         * @return true if the element is new, and its content
+         * should be written by the caller.
+         */
+        private <T> boolean writeId(Map<T, Integer> table, T element)
+                throws IOException {
+            Integer id = table.get(element);
+            if (id != null) {
+                out.writeInt(id);
+                return false;
+            } else {
+                out.writeInt(-1);
+                table.put(element, table.size());
+                return true;
+            }
+        }
+
+        private void writeString(String s) throws IOException {
+            if (writeId(strings, s)) {
+                out.writeUTF(s);
+            }
+        }
+
+        private void writeMethod(JMethod method) throws IOException {
+            writeString(method.getSignature());
+        }
+
+        private void writeStmt(Invoke invoke) throws IOException {
+            writeMethod(invoke.getContainer());
+            out.writeInt(invoke.getIndex());
+        }
+
+        private void writeObj(Obj obj) throws IOException {
+            if (writeId(objs, obj)) {
+                New allocSite = getAllocSite(obj);
+                writeMethod(allocSite.getContainer());
+                out.writeInt(allocSite.getIndex());
+            }
+        }
+
+        private void writeContext(Context context) throws IOException {
+            if (writeId(contexts, context)) {
+                out.writeInt(context.getLength());
+                for (int i = 0; i < context.getLength(); ++i) {
+                    Object elem = context.getElementAt(i);
+                    if (elem instanceof Invoke invoke) {
+                        out.writeByte(INVOKE);
+                        writeStmt(invoke);
+                    } else if (elem instanceof Obj obj) {
+                        out.writeByte(OBJ);
+                        writeObj(obj);
+                    } else if (elem instanceof Type type) {
+                        out.writeByte(TYPE);
+                        writeString(type.getName());
+                    } else {
+                        throw new AnalysisException(
+                                "Unsupported context element: " + elem);
+                    }
+                }
+            }
+        }
+
+        private void writeCSObj(CSObj csObj) throws IOException {
+            if (writeId(csObjs, csObj)) {
+                writeContext(csObj.getContext());
+                writeObj(csObj.getObject());
+            }
+        }
+
+        private void writePointer(Pointer pointer) throws IOException {
+            if (writeId(pointers, pointer)) {
+                if (pointer instanceof CSVar csVar) {
+                    out.writeByte(VAR);
+                    writeContext(csVar.getContext());
+                    writeMethod(csVar.getVar().getMethod());
+                    out.writeInt(csVar.getVar().getIndex());
+                } else if (pointer instanceof StaticField staticField) {
+                    out.writeByte(STATIC_FIELD);
+                    writeString(staticField.getField().getSignature());
+                } else if (pointer instanceof InstanceField instanceField) {
+                    out.writeByte(INSTANCE_FIELD);
+                    writeCSObj(instanceField.getBase());
+                    writeString(instanceField.getField().getSignature());
+                } else {
+                    out.writeByte(ARRAY_INDEX);
+                    writeCSObj(((ArrayIndex) pointer).getArray());
+                }
+            }
+        }
+
+        private void writePointsToSet(PointsToSet pts) throws IOException {
+            out.writeInt(pts.size());
+            for (CSObj csObj : pts) {
+                writeCSObj(csObj);
+            }
+        }
+
+        /**
+         * @return an allocation site that is abstracted as given object.
+         */
+        private static New getAllocSite(Obj obj) {
+            Object alloc = obj.getAllocation();
+            if (alloc instanceof New allocSite) {
+                return allocSite;
+            } else if (alloc instanceof Set<?> objs && !objs.isEmpty()) {
+                // merged object
+                return getAllocSite((Obj) objs.iterator().next());
+            } else {
+                throw new AnalysisException("Unsupported object: " + obj);
+            }
+        }
+    }
+
+    /**
+     * Reads program elements from the snapshot, and converts them
+     * to the elements of current run.
+     */
+    private static class Decoder {
+
+        private final DataInputStream in;
+
+        private final CSManager csManager;
+
+        private final PointsToSetFactory ptsFactory;
+
+        private final HeapModel heapModel;
+
+        private final ClassHierarchy hierarchy = World.get().getClassHierarchy();
+
+        private final List<String> strings = new ArrayList<>();
+
+        private final List<Context> contexts = new ArrayList<>();
+
+        private final List<Obj> objs = new ArrayList<>();
+
+        private final List<CSObj> csObjs = new ArrayList<>();
+
+        private final List<Pointer> pointers = new ArrayList<>();
+
+        private Decoder(DataInputStream in, CSManager csManager,
+                        PointsToSetFactory ptsFactory, HeapModel heapModel) {
+            this.in = in;
+            this.csManager = csManager;
+            this.ptsFactory = ptsFactory;
+            this.heapModel = heapModel;
+        }
+
+        private String readString() throws IOException {
+            int id = in.readInt();
+            if (id >= 0) {
+                return strings.get(id);
+            }
+            String s = in.readUTF();
+            strings.add(s);
+            return s;
+        }
+
+        private JMethod readMethod() throws IOException {
+            String signature = readString();
+            JMethod method = hierarchy.getMethod(signature);
+            if (method == null) {
+                throw new AnalysisException(
+                        "Method in checkpoint is absent: " + signature);
+            }
+            return method;
+        }
+
+        private JField readField() throws IOException {
+            String signature = readString();
+            JField field = hierarchy.getField(signature);
+            if (field == null) {
+                throw new AnalysisException(
+                        "Field in checkpoint is absent: " + signature);
+            }
+            return field;
+        }
+
+        private Object readStmt() throws IOException {
+            JMethod method = readMethod();
+            return method.getIR().getStmt(in.readInt());
+        }
+
+        private Obj readObj() throws IOException {
+            int id = in.readInt();
+            if (id >= 0) {
+                return objs.get(id);
+            }
+            Obj obj = heapModel.getObj((New) readStmt());
+            objs.add(obj);
+            return obj;
+        }
+
+        private Context readContext() throws IOException {
+            int id = in.readInt();
+            if (id >= 0) {
+                return contexts.get(id);
+            }
+            Object[] elems = new Object[in.readInt()];
+            for (int i = 0; i < elems.length; ++i) {
+                elems[i] = switch (in.readByte()) {
+                    case INVOKE -> readStmt();
+                    case OBJ -> readObj();
+                    case TYPE -> World.get().getTypeSystem().getType(readString());
+                    default -> throw new AnalysisException("Corrupted checkpoint");
+                };
+            }
+            Context context = ListContext.make(elems);
+            contexts.add(context);
+            return context;
+        }
+
+        private CSObj readCSObj() throws IOException {
+            int id = in.readInt();
+            if (id >= 0) {
+                return csObjs.get(id);
+            }
+            Context context = readContext();
+            CSObj csObj = csManager.getCSObj(context, readObj());
+            csObjs.add(csObj);
+            return csObj;
+        }
+
+        private Pointer readPointer() throws IOException {
+            int id = in.readInt();
+            if (id >= 0) {
+                return pointers.get(id);
+            }
+            Pointer pointer = switch (in.readByte()) {
+                case VAR -> {
+                    Context context = readContext();
+                    Var var = readMethod().getIR().getVar(in.readInt());
+                    yield csManager.getCSVar(context, var);
+                }
+                case STATIC_FIELD -> csManager.getStaticField(readField());
+                case INSTANCE_FIELD -> {
+                    CSObj base = readCSObj();
+                    yield csManager.getInstanceField(base, readField());
+                }
+                case ARRAY_INDEX -> csManager.getArrayIndex(readCSObj());
+                default -> throw new AnalysisException("Corrupted checkpoint");
+            };
+            pointers.add(pointer);
+            return pointer;
+        }
+
+        private PointsToSet readPointsToSet() throws IOException {
+            PointsToSet pts = ptsFactory.make();
+            for (int i = in.readInt(); i > 0; --i) {
+                pts.addObject(readCSObj());
+            }
+            return pts;
+        }
+    }
+}
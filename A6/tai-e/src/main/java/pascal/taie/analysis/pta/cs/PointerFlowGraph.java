@@ -54,4 +54,11 @@ class PointerFlowGraph {
     Set<Pointer> getSuccsOf(Pointer pointer) {
         return successors.get(pointer);
     }
+
+    /**
+     * @return the pointers that have successors in the PFG.
+     */
+    Set<Pointer> getSources() {
+        return successors.keySet();
+    }
 }
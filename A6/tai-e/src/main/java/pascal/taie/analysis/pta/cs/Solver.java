@@ -26,34 +26,42 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pascal.taie.World;
 import pascal.taie.analysis.graph.callgraph.CallGraphs;
-import pascal.taie.analysis.graph.callgraph.CallKind;
 import pascal.taie.analysis.graph.callgraph.Edge;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.PointerAnalysisResultImpl;
 import pascal.taie.analysis.pta.core.cs.CSCallGraph;
 import pascal.taie.analysis.pta.core.cs.context.Context;
-import pascal.taie.analysis.pta.core.cs.element.ArrayIndex;
+import pascal.taie.analysis.pta.core.cs.element.ArrayBasedCSManager;
 import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
 import pascal.taie.analysis.pta.core.cs.element.CSManager;
 import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
 import pascal.taie.analysis.pta.core.cs.element.CSVar;
-import pascal.taie.analysis.pta.core.cs.element.InstanceField;
-import pascal.taie.analysis.pta.core.cs.element.MapBasedCSManager;
 import pascal.taie.analysis.pta.core.cs.element.Pointer;
-import pascal.taie.analysis.pta.core.cs.element.StaticField;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
+import pascal.taie.analysis.pta.core.cs.selector.DegradableSelector;
 import pascal.taie.analysis.pta.core.heap.HeapModel;
 import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.plugin.ContextDiagnostics;
 import pascal.taie.analysis.pta.pts.PointsToSet;
 import pascal.taie.analysis.pta.pts.PointsToSetFactory;
 import pascal.taie.config.AnalysisOptions;
-import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.*;
-import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 class Solver {
 
@@ -65,7 +73,9 @@ class Solver {
 
     private final ContextSelector contextSelector;
 
-    private CSManager csManager;
+    private ArrayBasedCSManager csManager;
+
+    private PointsToSetFactory ptsFactory;
 
     private CSCallGraph callGraph;
 
@@ -75,26 +85,174 @@ class Solver {
 
     private PointerAnalysisResult result;
 
+    /**
+     * Constraint templates of the reachable methods.
+     */
+    private final Map<JMethod, ConstraintTemplate> templates = Maps.newMap();
+
+    /**
+     * Checkpoint of the solver state, or null if checkpointing is disabled.
+     */
+    private Checkpoint checkpoint;
+
+    /**
+     * Interval between two checkpoints in milliseconds.
+     */
+    private long checkpointInterval;
+
+    private long nextCheckpointTime;
+
+    /**
+     * Number of threads used to update points-to sets.
+     */
+    private int threads;
+
+    /**
+     * PFG edges whose source points-to sets have not been propagated yet,
+     * in parallel mode.
+     */
+    private final List<PFGEdge> deferredEdges = new ArrayList<>();
+
+    private record PFGEdge(Pointer source, Pointer target) {
+    }
+
+    /**
+     * Whether this solver runs a pre-analysis for the main analysis.
+     * Pre-analyses do not checkpoint.
+     */
+    private final boolean isPreAnalysis;
+
+    /**
+     * Context selector to degrade when the analysis exceeds its budget,
+     * or null if the analysis has no budget.
+     */
+    private DegradableSelector degradableSelector;
+
+    /**
+     * Time budget in milliseconds, or 0 if time is unlimited.
+     */
+    private long timeBudget;
+
+    /**
+     * Memory budget in bytes, or 0 if memory is unlimited.
+     */
+    private long memoryBudget;
+
+    private long deadline;
+
+    private long memoryLimit;
+
+    private boolean hottestDegraded;
+
+    /**
+     * Diagnostics of context sensitivity, or null if disabled.
+     */
+    private ContextDiagnostics diagnostics;
+
+    /**
+     * Interval between two diagnostics samples during solving
+     * in milliseconds, or -1 if only the final result is sampled.
+     * If it is 0, a sample is taken after each propagation step.
+     */
+    private long sampleInterval = -1;
+
+    /**
+     * Whether checkpoints, budget or diagnostics samples are enabled.
+     * If not, the solver skips the periodic checks entirely.
+     */
+    private boolean hasPeriodicTasks;
+
+    private long nextSampleTime;
+
+    private long startTime;
+
     Solver(AnalysisOptions options, HeapModel heapModel,
            ContextSelector contextSelector) {
+        this(options, heapModel, contextSelector, false);
+    }
+
+    Solver(AnalysisOptions options, HeapModel heapModel,
+           ContextSelector contextSelector, boolean isPreAnalysis) {
         this.options = options;
         this.heapModel = heapModel;
         this.contextSelector = contextSelector;
+        this.isPreAnalysis = isPreAnalysis;
     }
 
     void solve() {
         initialize();
         analyze();
+        if (checkpoint != null) {
+            saveCheckpoint();
+        }
+        if (diagnostics != null) {
+            diagnostics.sample("final", getResult());
+            diagnostics.write(Path.of(options.getString("diagnostics")));
+        }
+        if (degradableSelector != null &&
+                !degradableSelector.getDegradedMethods().isEmpty()) {
+            logger.info("{} methods are degraded due to budget exhaustion:",
+                    degradableSelector.getDegradedMethods().size());
+            degradableSelector.getDegradedMethods()
+                    .stream()
+                    .map(JMethod::toString)
+                    .sorted()
+                    .forEach(m -> logger.info("  {}", m));
+        }
     }
 
-    private void initialize() {
-        csManager = new MapBasedCSManager();
+    /**
+     * Initializes the solver, i.e., resumes from the checkpoint, or makes
+     * the main method reachable. Package-private for testing, as the state
+     * right after initialization is a mid-solve state to checkpoint.
+     */
+    void initialize() {
+        // bit sets convert indexes back to the CS objects, which are
+        // numbered densely by csManager
+        ptsFactory = PointsToSetFactory.of(options.getString("pts"),
+                index -> csManager.getCSObj(index));
+        csManager = new ArrayBasedCSManager(ptsFactory);
         callGraph = new CSCallGraph(csManager);
         pointerFlowGraph = new PointerFlowGraph();
         workList = new WorkList();
+        threads = options.get("threads") != null ? options.getInt("threads") : 1;
+        if (contextSelector instanceof DegradableSelector selector) {
+            degradableSelector = selector;
+            // time budget is given in seconds, and memory budget in MB
+            timeBudget = options.get("time-budget") != null ?
+                    options.getInt("time-budget") * 1000L : 0;
+            memoryBudget = options.get("memory-budget") != null ?
+                    options.getInt("memory-budget") * (1L << 20) : 0;
+            deadline = timeBudget > 0 ?
+                    System.currentTimeMillis() + timeBudget : Long.MAX_VALUE;
+            memoryLimit = memoryBudget > 0 ? memoryBudget : Long.MAX_VALUE;
+        }
+        startTime = System.currentTimeMillis();
+        if (!isPreAnalysis && options.get("diagnostics") != null) {
+            diagnostics = new ContextDiagnostics(
+                    options.get("diagnostics-top") != null ?
+                            options.getInt("diagnostics-top") : 50);
+            // interval is given in seconds
+            sampleInterval = options.get("diagnostics-interval") != null ?
+                    options.getInt("diagnostics-interval") * 1000L : -1;
+            nextSampleTime = startTime + sampleInterval;
+        }
+        JMethod main = World.get().getMainMethod();
+        if (!isPreAnalysis && options.get("checkpoint") != null) {
+            checkpoint = new Checkpoint(Path.of(options.getString("checkpoint")),
+                    getCheckpointTag(options, main));
+            // interval is given in seconds
+            checkpointInterval = options.get("checkpoint-interval") != null ?
+                    options.getInt("checkpoint-interval") * 1000L : 600_000L;
+            nextCheckpointTime = System.currentTimeMillis() + checkpointInterval;
+            if (checkpoint.restore(csManager, ptsFactory, heapModel, callGraph,
+                    pointerFlowGraph, workList)) {
+                logger.info("Resumed from checkpoint {}", checkpoint.getFile());
+                return;
+            }
+        }
         // process program entry, i.e., main method
         Context defContext = contextSelector.getEmptyContext();
-        JMethod main = World.get().getMainMethod();
         CSMethod csMethod = csManager.getCSMethod(defContext, main);
         callGraph.addEntryMethod(csMethod);
         addReachable(csMethod);
@@ -106,100 +264,56 @@ class Solver {
     private void addReachable(CSMethod csMethod) {
         // TODO - finish me
         if (callGraph.addReachableMethod(csMethod)) {
-            StmtProcessor stmtProcessor = new StmtProcessor(csMethod);
-            for (Stmt stmt : csMethod.getMethod().getIR().getStmts()) {
-                stmt.accept(stmtProcessor);
-            }
+            ConstraintTemplate template = templates.computeIfAbsent(
+                    csMethod.getMethod(),
+                    m -> ConstraintTemplate.build(m, heapModel));
+            instantiate(template, csMethod);
         }
     }
 
     /**
-     * Processes the statements in context-sensitive new reachable methods.
+     * Instantiates the constraint template of a method with its context.
      */
-    private class StmtProcessor implements StmtVisitor<Void> {
-
-        private final CSMethod csMethod;
-
-        private final Context context;
-
-        private StmtProcessor(CSMethod csMethod) {
-            this.csMethod = csMethod;
-            this.context = csMethod.getContext();
+    private void instantiate(ConstraintTemplate template, CSMethod csMethod) {
+        Context context = csMethod.getContext();
+        for (ConstraintTemplate.Alloc alloc : template.allocs) {
+            Obj obj = alloc.obj();
+            Context heapContext = contextSelector.selectHeapContext(csMethod, obj);
+            workList.addEntry(csManager.getCSVar(context, alloc.lhs()),
+                    ptsFactory.make(csManager.getCSObj(heapContext, obj)));
         }
-
-        // TODO - if you choose to implement addReachable()
-        //  via visitor pattern, then finish me
-        public Void visit(New stmt) {
-            workList.addEntry(
-                    csManager.getCSVar(this.context, stmt.getLValue()),
-                    PointsToSetFactory.make(
-                            csManager.getCSObj(
-                                    contextSelector.selectHeapContext(csMethod, heapModel.getObj(stmt)),
-                                    heapModel.getObj(stmt)
-                            )
-                    )
-            );
-            return null;
+        for (ConstraintTemplate.Assign assign : template.assigns) {
+            addPFGEdge(csManager.getCSVar(context, assign.from()),
+                    csManager.getCSVar(context, assign.to()));
         }
-
-        public Void visit(Copy stmt) {
-            addPFGEdge(
-                    csManager.getCSVar(this.context, stmt.getRValue()),
-                    csManager.getCSVar(this.context, stmt.getLValue())
-            );
-            return null;
+        for (ConstraintTemplate.StaticLoad load : template.staticLoads) {
+            addPFGEdge(csManager.getStaticField(load.field()),
+                    csManager.getCSVar(context, load.lhs()));
         }
-
-        public Void visit(LoadField stmt) {
-            if (stmt.isStatic()) {
-                addPFGEdge(
-                        csManager.getStaticField(stmt.getFieldRef().resolve()),
-                        csManager.getCSVar(this.context, stmt.getLValue())
-                );
-            }
-            return null;
+        for (ConstraintTemplate.StaticStore store : template.staticStores) {
+            addPFGEdge(csManager.getCSVar(context, store.rhs()),
+                    csManager.getStaticField(store.field()));
         }
-
-        public Void visit(StoreField stmt) {
-            if (stmt.isStatic()) {
-                addPFGEdge(
-                        csManager.getCSVar(this.context, stmt.getRValue()),
-                        csManager.getStaticField(stmt.getFieldRef().resolve())
-                );
+        for (ConstraintTemplate.StaticCall call : template.staticCalls) {
+            Invoke callSite = call.callSite();
+            JMethod callee = call.callee();
+            CSCallSite csCallSite = csManager.getCSCallSite(context, callSite);
+            Context calleeContext = contextSelector.selectContext(csCallSite, callee);
+            CSMethod csCallee = csManager.getCSMethod(calleeContext, callee);
+            addReachable(csCallee);
+            List<Var> args = callSite.getInvokeExp().getArgs();
+            for (int i = 0; i < args.size(); i++) {
+                addPFGEdge(csManager.getCSVar(context, args.get(i)),
+                        csManager.getCSVar(calleeContext, callee.getIR().getParam(i)));
             }
-            return null;
-        }
-
-        public Void visit(Invoke stmt) {
-            if (stmt.isStatic()) {
-                JMethod targetMethod = resolveCallee(null, stmt);
-                Context targetContext = contextSelector.selectContext(
-                        csManager.getCSCallSite(this.context, stmt),
-                        targetMethod
-                );
-                addReachable(csManager.getCSMethod(targetContext, targetMethod));
-                for (int i = 0; i < stmt.getInvokeExp().getArgCount(); i++) {
-                    addPFGEdge(
-                            csManager.getCSVar(this.context, stmt.getInvokeExp().getArg(i)),
-                            csManager.getCSVar(targetContext, targetMethod.getIR().getParam(i))
-                    );
+            Var lhs = callSite.getLValue();
+            if (lhs != null) {
+                for (Var ret : callee.getIR().getReturnVars()) {
+                    addPFGEdge(csManager.getCSVar(calleeContext, ret),
+                            csManager.getCSVar(context, lhs));
                 }
-                if (stmt.getLValue() != null) {
-                    for (Var var : targetMethod.getIR().getReturnVars()) {
-                        addPFGEdge(
-                                csManager.getCSVar(targetContext, var),
-                                csManager.getCSVar(this.context, stmt.getLValue())
-                        );
-                    }
-                }
-                callGraph.addEdge(new Edge<>(
-                                CallGraphs.getCallKind(stmt),
-                                csManager.getCSCallSite(this.context, stmt),
-                                csManager.getCSMethod(targetContext, targetMethod)
-                        )
-                );
             }
-            return null;
+            callGraph.addEdge(new Edge<>(call.kind(), csCallSite, csCallee));
         }
     }
 
@@ -209,8 +323,17 @@ class Solver {
     private void addPFGEdge(Pointer source, Pointer target) {
         // TODO - finish me
         if (pointerFlowGraph.addEdge(source, target)) {
-            if (!source.getPointsToSet().isEmpty()) {
-                workList.addEntry(target, source.getPointsToSet());
+            if (threads > 1) {
+                // pt(source) may be updated in the current round, so it is
+                // propagated in a later round, see propagateDeferredEdges()
+                if (source != target) {
+                    deferredEdges.add(new PFGEdge(source, target));
+                }
+                return;
+            }
+            PointsToSet pts = source.getPointsToSet();
+            if (!pts.isEmpty()) {
+                workList.addEntry(target, pts);
             }
         }
     }
@@ -220,56 +343,284 @@ class Solver {
      */
     private void analyze() {
         // TODO - finish me
+        hasPeriodicTasks = checkpoint != null || degradableSelector != null ||
+                (diagnostics != null && sampleInterval >= 0);
+        if (threads > 1) {
+            analyzeInParallel();
+            return;
+        }
         while (!workList.isEmpty()) {
             WorkList.Entry head = workList.pollEntry();
             PointsToSet delta = propagate(head.pointer(), head.pointsToSet());
-            if (head.pointer() instanceof CSVar varptr) {
-                Var var = varptr.getVar();
-                for (CSObj obj : delta) {
-                    for (StoreField storeField : var.getStoreFields()) {
-                        addPFGEdge(
-                                csManager.getCSVar(varptr.getContext(), storeField.getRValue()),
-                                csManager.getInstanceField(obj, storeField.getFieldRef().resolve())
-                        );
-                    }
-                    for (LoadField loadField : var.getLoadFields()) {
-                        addPFGEdge(
-                                csManager.getInstanceField(obj, loadField.getFieldRef().resolve()),
-                                csManager.getCSVar(varptr.getContext(), loadField.getLValue())
-                        );
-                    }
-                    for (StoreArray storeArray : var.getStoreArrays()) {
-                        addPFGEdge(
-                                csManager.getCSVar(varptr.getContext(), storeArray.getRValue()),
-                                csManager.getArrayIndex(obj)
-                        );
-                    }
-                    for (LoadArray loadArray : var.getLoadArrays()) {
-                        addPFGEdge(
-                                csManager.getArrayIndex(obj),
-                                csManager.getCSVar(varptr.getContext(), loadArray.getLValue())
-                        );
+            processNewObjects(head.pointer(), delta);
+            performPeriodicTasks();
+        }
+    }
+
+    /**
+     * Processes work-list entries in rounds until the work-list is empty.
+     * In each round, the pending entries are grouped by their pointers,
+     * and the points-to sets of different pointers are updated in parallel.
+     * Each pointer is updated by exactly one task, thus the points-to sets
+     * need no synchronization. Then the differences are propagated to the
+     * PFG successors and the new objects of variables are processed
+     * sequentially, as they modify PFG, call graph and CSManager.
+     * The fixed point is the same as the one of {@link #analyze()}.
+     */
+    private void analyzeInParallel() {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            while (!workList.isEmpty() || !deferredEdges.isEmpty()) {
+                Map<Pointer, List<PointsToSet>> pending = new LinkedHashMap<>();
+                for (WorkList.Entry entry = workList.pollEntry(); entry != null;
+                     entry = workList.pollEntry()) {
+                    pending.computeIfAbsent(entry.pointer(), p -> new ArrayList<>())
+                            .add(entry.pointsToSet());
+                }
+                propagateDeferredEdges(pending);
+                List<Pointer> pointers = new ArrayList<>(pending.keySet());
+                PointsToSet[] deltas = new PointsToSet[pointers.size()];
+                pool.submit(() -> IntStream.range(0, pointers.size())
+                        .parallel()
+                        .forEach(i -> {
+                            PointsToSet delta = ptsFactory.make();
+                            Pointer pointer = pointers.get(i);
+                            for (PointsToSet pts : pending.get(pointer)) {
+                                addToPointsToSet(pointer, pts, delta);
+                            }
+                            deltas[i] = delta;
+                        })).join();
+                for (int i = 0; i < deltas.length; ++i) {
+                    Pointer pointer = pointers.get(i);
+                    PointsToSet delta = deltas[i];
+                    if (!delta.isEmpty()) {
+                        for (Pointer succ : pointerFlowGraph.getSuccsOf(pointer)) {
+                            workList.addEntry(succ, delta);
+                        }
+                        processNewObjects(pointer, delta);
                     }
-                    processCall(varptr, obj);
                 }
+                performPeriodicTasks();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Adds pt(source) of the deferred PFG edges to the pending entries of
+     * their targets, without copying. This is safe only if source is not
+     * updated in this round, and target is not read in this round, thus
+     * the other edges stay deferred. Along a deferred edge whose source is
+     * updated in this round, the new objects flow to target anyway, and
+     * the whole pt(source) is propagated in a later round.
+     * If nothing is pending, the first deferred edge is always propagated,
+     * so the rounds make progress.
+     */
+    private void propagateDeferredEdges(Map<Pointer, List<PointsToSet>> pending) {
+        Set<Pointer> written = Sets.newSet();
+        written.addAll(pending.keySet());
+        Set<Pointer> read = Sets.newSet();
+        List<PFGEdge> remaining = new ArrayList<>();
+        for (PFGEdge edge : deferredEdges) {
+            Pointer source = edge.source(), target = edge.target();
+            if (written.contains(source) || read.contains(target)) {
+                remaining.add(edge);
+                continue;
+            }
+            PointsToSet pts = source.getPointsToSet();
+            if (!pts.isEmpty()) {
+                pending.computeIfAbsent(target, p -> new ArrayList<>()).add(pts);
+                read.add(source);
+                written.add(target);
+            }
+        }
+        deferredEdges.clear();
+        deferredEdges.addAll(remaining);
+    }
+
+    /**
+     * Moves the deferred PFG edges to the work-list, so that they are
+     * recorded by checkpoints. The points-to sets are copied, as they
+     * may be updated in the round in which the entries are processed.
+     */
+    private void flushDeferredEdges() {
+        Map<Pointer, PointsToSet> snapshots = Maps.newMap();
+        for (PFGEdge edge : deferredEdges) {
+            PointsToSet snapshot = snapshots.computeIfAbsent(edge.source(), source -> {
+                PointsToSet pts = ptsFactory.make();
+                pts.addAll(source.getPointsToSet());
+                return pts;
+            });
+            if (!snapshot.isEmpty()) {
+                workList.addEntry(edge.target(), snapshot);
+            }
+        }
+        deferredEdges.clear();
+    }
+
+    /**
+     * Processes the field accesses, array accesses and instance calls
+     * on a variable pointer when new objects flow into it.
+     */
+    private void processNewObjects(Pointer pointer, PointsToSet delta) {
+        if (pointer instanceof CSVar varptr) {
+            Var var = varptr.getVar();
+            for (CSObj obj : delta) {
+                for (StoreField storeField : var.getStoreFields()) {
+                    addPFGEdge(
+                            csManager.getCSVar(varptr.getContext(), storeField.getRValue()),
+                            csManager.getInstanceField(obj, storeField.getFieldRef().resolve())
+                    );
+                }
+                for (LoadField loadField : var.getLoadFields()) {
+                    addPFGEdge(
+                            csManager.getInstanceField(obj, loadField.getFieldRef().resolve()),
+                            csManager.getCSVar(varptr.getContext(), loadField.getLValue())
+                    );
+                }
+                for (StoreArray storeArray : var.getStoreArrays()) {
+                    addPFGEdge(
+                            csManager.getCSVar(varptr.getContext(), storeArray.getRValue()),
+                            csManager.getArrayIndex(obj)
+                    );
+                }
+                for (LoadArray loadArray : var.getLoadArrays()) {
+                    addPFGEdge(
+                            csManager.getArrayIndex(obj),
+                            csManager.getCSVar(varptr.getContext(), loadArray.getLValue())
+                    );
+                }
+                processCall(varptr, obj);
+            }
+        }
+    }
+
+    /**
+     * Performs the tasks that are checked after each propagation step
+     * (or round in parallel mode).
+     */
+    private void performPeriodicTasks() {
+        if (!hasPeriodicTasks) {
+            return;
+        }
+        checkpointIfDue();
+        checkBudget();
+        sampleIfDue();
+    }
+
+    private void sampleIfDue() {
+        if (diagnostics != null && sampleInterval >= 0 &&
+                System.currentTimeMillis() >= nextSampleTime) {
+            long elapsed = System.currentTimeMillis() - startTime;
+            diagnostics.sample(elapsed / 1000 + "s",
+                    new PointerAnalysisResultImpl(csManager, callGraph));
+            nextSampleTime = System.currentTimeMillis() + sampleInterval;
+        }
+    }
+
+    private void checkpointIfDue() {
+        if (checkpoint != null &&
+                System.currentTimeMillis() >= nextCheckpointTime) {
+            saveCheckpoint();
+        }
+    }
+
+    /**
+     * Degrades the precision of the analysis when it exceeds its budget.
+     * The first time the budget is exceeded, the hottest methods, i.e.,
+     * the methods with the most contexts, are degraded, and each budget is
+     * extended by 10%. If the extended budget is exceeded again, or no method
+     * has more than one context to be degraded, all methods are degraded.
+     */
+    private void checkBudget() {
+        if (degradableSelector == null || degradableSelector.isAllDegraded()) {
+            return;
+        }
+        if (System.currentTimeMillis() < deadline &&
+                getUsedMemory() < memoryLimit) {
+            return;
+        }
+        if (!hottestDegraded && degradeHottestMethods()) {
+            hottestDegraded = true;
+            if (timeBudget > 0) {
+                deadline = System.currentTimeMillis() + timeBudget / 10;
+            }
+            if (memoryBudget > 0) {
+                memoryLimit = Math.max(memoryLimit, getUsedMemory()) + memoryBudget / 10;
             }
+        } else {
+            degradableSelector.degradeAll();
+            logger.info("Budget exceeded, degraded all methods");
         }
     }
 
+    /**
+     * Degrades the methods with the most contexts, which together
+     * have at least half of all contexts.
+     *
+     * @return true if any method is degraded.
+     */
+    private boolean degradeHottestMethods() {
+        Map<JMethod, Integer> contexts = Maps.newMap();
+        callGraph.reachableMethods().forEach(csMethod ->
+                contexts.merge(csMethod.getMethod(), 1, Integer::sum));
+        int total = contexts.values().stream().mapToInt(Integer::intValue).sum();
+        List<JMethod> hottest = new ArrayList<>();
+        int covered = 0;
+        for (Map.Entry<JMethod, Integer> e : contexts.entrySet()
+                .stream()
+                .sorted(Map.Entry.<JMethod, Integer>comparingByValue(
+                        Comparator.reverseOrder()))
+                .toList()) {
+            if (covered * 2 >= total || e.getValue() == 1) {
+                break;
+            }
+            hottest.add(e.getKey());
+            covered += e.getValue();
+        }
+        if (hottest.isEmpty()) {
+            return false;
+        }
+        degradableSelector.degrade(hottest);
+        logger.info("Budget exceeded, degraded {} hottest methods ({} of {} contexts)",
+                hottest.size(), covered, total);
+        return true;
+    }
+
+    private static long getUsedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * @return the tag that identifies the configuration of the checkpoints
+     * of given options and main method.
+     */
+    static String getCheckpointTag(AnalysisOptions options, JMethod main) {
+        return "cs=" + options.get("cs") +
+                ";cs-plan=" + options.get("cs-plan") +
+                ";heap-model=" + options.get("heap-model") +
+                ";main=" + main.getSignature();
+    }
+
+    /**
+     * Saves current state of the solver to the checkpoint.
+     */
+    void saveCheckpoint() {
+        flushDeferredEdges();
+        checkpoint.save(csManager, callGraph, pointerFlowGraph, workList);
+        logger.info("Saved checkpoint to {}", checkpoint.getFile());
+        nextCheckpointTime = System.currentTimeMillis() + checkpointInterval;
+    }
+
     /**
      * Propagates pointsToSet to pt(pointer) and its PFG successors,
      * returns the difference set of pointsToSet and pt(pointer).
      */
     private PointsToSet propagate(Pointer pointer, PointsToSet pointsToSet) {
         // TODO - finish me
-        PointsToSet delta = PointsToSetFactory.make();
-        PointsToSet receiver = pointer.getPointsToSet();
-        for (CSObj obj : pointsToSet) {
-            if (!receiver.contains(obj)) {
-                delta.addObject(obj);
-                receiver.addObject(obj);
-            }
-        }
+        PointsToSet delta = pointer.getPointsToSet().addAllDiff(pointsToSet);
         if (!delta.isEmpty()) {
             for (Pointer s : pointerFlowGraph.getSuccsOf(pointer)) {
                 workList.addEntry(s, delta);
@@ -278,6 +629,15 @@ class Solver {
         return delta;
     }
 
+    /**
+     * Adds the objects in pointsToSet to pt(pointer), and adds the objects
+     * that are not in pt(pointer) before to delta.
+     */
+    private static void addToPointsToSet(Pointer pointer, PointsToSet pointsToSet,
+                                         PointsToSet delta) {
+        delta.addAll(pointer.getPointsToSet().addAllDiff(pointsToSet));
+    }
+
     /**
      * Processes instance calls when points-to set of the receiver variable changes.
      *
@@ -290,7 +650,7 @@ class Solver {
             if (invoke.isStatic()) continue;
             JMethod method = resolveCallee(recvObj, invoke);
             Context targetContext = contextSelector.selectContext(csManager.getCSCallSite(recv.getContext(), invoke), recvObj, method);
-            workList.addEntry(csManager.getCSVar(targetContext, method.getIR().getThis()), PointsToSetFactory.make(recvObj));
+            workList.addEntry(csManager.getCSVar(targetContext, method.getIR().getThis()), ptsFactory.make(recvObj));
             if (callGraph.addEdge(new Edge<>(
                             CallGraphs.getCallKind(invoke),
                             csManager.getCSCallSite(recv.getContext(), invoke),
@@ -0,0 +1,173 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.plugin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.cs.element.CSMethod;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Diagnoses the explosion of context sensitivity. Each sample ranks
+ * <ul>
+ *     <li>methods by their numbers of contexts,</li>
+ *     <li>variables by the sums of the sizes of their CS points-to sets,</li>
+ *     <li>allocation sites by their numbers of heap contexts, and</li>
+ *     <li>instance field pointers by the sizes of their points-to sets.</li>
+ * </ul>
+ * Samples can be taken during solving as well as on the final result,
+ * and are written as CSV, or as JSON if the output file ends with ".json".
+ */
+public class ContextDiagnostics {
+
+    private static final Logger logger = LogManager.getLogger(ContextDiagnostics.class);
+
+    /**
+     * An element and its value in a ranking.
+     */
+    public record Entry(String element, int value) {
+    }
+
+    /**
+     * Rankings of a sample, in the order of the categories.
+     */
+    public record Sample(String label, Map<String, List<Entry>> rankings) {
+    }
+
+    /**
+     * Maximum number of entries in each ranking.
+     */
+    private final int top;
+
+    private final List<Sample> samples = new ArrayList<>();
+
+    public ContextDiagnostics(int top) {
+        this.top = top;
+    }
+
+    /**
+     * Takes a sample of given (possibly partial) result.
+     *
+     * @param label label of the sample, e.g., the elapsed time.
+     */
+    public void sample(String label, PointerAnalysisResult result) {
+        Map<String, List<Entry>> rankings = new LinkedHashMap<>();
+        rankings.put("method-contexts", rank(
+                result.getCSCallGraph().reachableMethods().toList(),
+                CSMethod::getMethod, m -> 1));
+        // variables are labeled with their methods, as their names
+        // are unique only within the methods
+        rankings.put("var-pts-size", rank(result.getCSVars(),
+                v -> v.getVar().getMethod() + "/" + v.getVar().getName(),
+                v -> v.getPointsToSet().size()));
+        rankings.put("obj-heap-contexts", rank(result.getCSObjects(),
+                CSObj::getObject, o -> 1));
+        rankings.put("field-pts-size", rank(result.getInstanceFields(),
+                Function.identity(), f -> f.getPointsToSet().size()));
+        samples.add(new Sample(label, rankings));
+    }
+
+    /**
+     * Groups elements by keys, sums the values of each group,
+     * and returns the top groups in descending order of the sums.
+     */
+    private <E, K> List<Entry> rank(Collection<E> elements,
+                                    Function<E, K> getKey,
+                                    ToIntFunction<E> getValue) {
+        Map<K, Integer> sums = Maps.newMap();
+        for (E e : elements) {
+            sums.merge(getKey.apply(e), getValue.applyAsInt(e), Integer::sum);
+        }
+        return sums.entrySet()
+                .stream()
+                .map(e -> new Entry(e.getKey().toString(), e.getValue()))
+                .sorted(Comparator.comparingInt(Entry::value).reversed()
+                        .thenComparing(Entry::element))
+                .limit(top)
+                .toList();
+    }
+
+    public List<Sample> getSamples() {
+        return samples;
+    }
+
+    /**
+     * Writes all samples to given file, in JSON if the file name
+     * ends with ".json", otherwise in CSV.
+     */
+    public void write(Path file) {
+        logger.info("Writing context diagnostics to {} ...", file);
+        try {
+            if (file.toString().endsWith(".json")) {
+                new ObjectMapper()
+                        .enable(SerializationFeature.INDENT_OUTPUT)
+                        .writeValue(file.toFile(), samples);
+            } else {
+                try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                    out.println("sample,category,rank,element,value");
+                    for (Sample sample : samples) {
+                        sample.rankings().forEach((category, ranking) -> {
+                            for (int i = 0; i < ranking.size(); ++i) {
+                                Entry entry = ranking.get(i);
+                                out.printf("%s,%s,%d,%s,%d%n",
+                                        escape(sample.label()), category, i + 1,
+                                        escape(entry.element()), entry.value());
+                            }
+                        });
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new AnalysisException(
+                    "Failed to write context diagnostics to " + file, e);
+        }
+    }
+
+    /**
+     * Quotes a CSV field if necessary.
+     */
+    private static String escape(String field) {
+        if (field.contains(",") || field.contains("\"") || field.contains("\n")) {
+            return "\"" + field.replace("\"", "\"\"") + "\"";
+        }
+        return field;
+    }
+}
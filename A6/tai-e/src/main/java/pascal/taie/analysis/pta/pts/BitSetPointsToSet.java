@@ -0,0 +1,287 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.pts;
+
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Points-to set represented by a sparse bit set over the indexes
+ * of {@link CSObj}s. Only the non-zero 64-bit words are stored, sorted
+ * by their positions, so that each object takes about one bit in dense
+ * regions, and the union/difference of two sets is computed by merging
+ * the words of them in one pass.
+ */
+class BitSetPointsToSet implements PointsToSet {
+
+    /**
+     * Converts indexes back to objects.
+     */
+    private final IntFunction<CSObj> objects;
+
+    /**
+     * Positions of non-zero words, in ascending order.
+     */
+    private int[] positions;
+
+    private long[] words;
+
+    /**
+     * Number of non-zero words.
+     */
+    private int nWords;
+
+    /**
+     * Number of objects in this set.
+     */
+    private int size;
+
+    BitSetPointsToSet(IntFunction<CSObj> objects) {
+        this(objects, 2);
+    }
+
+    private BitSetPointsToSet(IntFunction<CSObj> objects, int capacity) {
+        this.objects = objects;
+        this.positions = new int[capacity];
+        this.words = new long[capacity];
+    }
+
+    @Override
+    public boolean addObject(CSObj obj) {
+        int index = obj.getIndex();
+        int pos = index >>> 6;
+        long bit = 1L << index;
+        int i = Arrays.binarySearch(positions, 0, nWords, pos);
+        if (i >= 0) {
+            if ((words[i] & bit) != 0) {
+                return false;
+            }
+            words[i] |= bit;
+        } else {
+            insertWord(-(i + 1), pos, bit);
+        }
+        ++size;
+        return true;
+    }
+
+    private void insertWord(int i, int pos, long word) {
+        if (nWords == positions.length) {
+            positions = Arrays.copyOf(positions, nWords * 2);
+            words = Arrays.copyOf(words, nWords * 2);
+        }
+        System.arraycopy(positions, i, positions, i + 1, nWords - i);
+        System.arraycopy(words, i, words, i + 1, nWords - i);
+        positions[i] = pos;
+        words[i] = word;
+        ++nWords;
+    }
+
+    @Override
+    public boolean addAll(PointsToSet pts) {
+        if (pts instanceof BitSetPointsToSet other) {
+            return merge(other, null);
+        }
+        boolean changed = false;
+        for (CSObj obj : pts) {
+            changed |= addObject(obj);
+        }
+        return changed;
+    }
+
+    @Override
+    public PointsToSet addAllDiff(PointsToSet pts) {
+        if (pts instanceof BitSetPointsToSet other) {
+            BitSetPointsToSet diff = new BitSetPointsToSet(objects,
+                    Math.max(other.nWords, 1));
+            merge(other, diff);
+            return diff;
+        }
+        BitSetPointsToSet diff = new BitSetPointsToSet(objects, 2);
+        for (CSObj obj : pts) {
+            if (addObject(obj)) {
+                diff.addObject(obj);
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * Adds the objects in other to this set in one pass over the words
+     * of the two sets.
+     *
+     * @param diff if not null, receives the objects that are in other
+     *             but not in this set before the merge.
+     * @return true if this set changed as a result of the call.
+     */
+    private boolean merge(BitSetPointsToSet other, BitSetPointsToSet diff) {
+        int[] newPositions = null;
+        long[] newWords = null;
+        int n = 0, i = 0, j = 0;
+        int oldSize = size;
+        while (j < other.nWords) {
+            int pos = other.positions[j];
+            while (i < nWords && positions[i] < pos) {
+                if (newPositions != null) {
+                    newPositions[n] = positions[i];
+                    newWords[n] = words[i];
+                    ++n;
+                }
+                ++i;
+            }
+            long added;
+            long word;
+            if (i < nWords && positions[i] == pos) {
+                added = other.words[j] & ~words[i];
+                word = words[i] | added;
+                ++i;
+            } else {
+                added = other.words[j];
+                word = added;
+                if (newPositions == null) {
+                    // this set gains new words, switch to building new arrays
+                    int capacity = Math.max(nWords + other.nWords - j, 2);
+                    newPositions = Arrays.copyOf(positions, capacity);
+                    newWords = Arrays.copyOf(words, capacity);
+                    n = i;
+                }
+            }
+            if (newPositions != null) {
+                newPositions[n] = pos;
+                newWords[n] = word;
+                ++n;
+            } else {
+                words[i - 1] = word;
+            }
+            if (added != 0) {
+                size += Long.bitCount(added);
+                if (diff != null) {
+                    diff.positions[diff.nWords] = pos;
+                    diff.words[diff.nWords] = added;
+                    ++diff.nWords;
+                    diff.size += Long.bitCount(added);
+                }
+            }
+            ++j;
+        }
+        if (newPositions != null) {
+            while (i < nWords) {
+                newPositions[n] = positions[i];
+                newWords[n] = words[i];
+                ++n;
+                ++i;
+            }
+            positions = newPositions;
+            words = newWords;
+            nWords = n;
+        }
+        return size != oldSize;
+    }
+
+    @Override
+    public boolean contains(CSObj obj) {
+        int index = obj.getIndex();
+        int i = Arrays.binarySearch(positions, 0, nWords, index >>> 6);
+        return i >= 0 && (words[i] & (1L << index)) != 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<CSObj> getObjects() {
+        return new AbstractSet<>() {
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof CSObj obj && BitSetPointsToSet.this.contains(obj);
+            }
+
+            @Override
+            public Iterator<CSObj> iterator() {
+                return new ObjectIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Stream<CSObj> objects() {
+        return StreamSupport.stream(getObjects().spliterator(), false);
+    }
+
+    @Override
+    public Iterator<CSObj> iterator() {
+        return new ObjectIterator();
+    }
+
+    @Override
+    public String toString() {
+        return getObjects().toString();
+    }
+
+    /**
+     * Iterates the objects in the order of their indexes.
+     */
+    private class ObjectIterator implements Iterator<CSObj> {
+
+        private int wordIndex = 0;
+
+        private long remaining = nWords > 0 ? words[0] : 0;
+
+        @Override
+        public boolean hasNext() {
+            while (remaining == 0 && wordIndex + 1 < nWords) {
+                remaining = words[++wordIndex];
+            }
+            return remaining != 0;
+        }
+
+        @Override
+        public CSObj next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int bit = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            return objects.apply((positions[wordIndex] << 6) + bit);
+        }
+    }
+}
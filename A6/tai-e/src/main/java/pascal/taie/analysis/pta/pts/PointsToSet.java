@@ -23,6 +23,7 @@
 package pascal.taie.analysis.pta.pts;
 
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.util.collection.Sets;
 
 import java.util.Iterator;
 import java.util.Set;
@@ -49,6 +50,22 @@ public interface PointsToSet extends Iterable<CSObj> {
      */
     boolean addAll(PointsToSet pts);
 
+    /**
+     * Adds all objects in given pts to this set.
+     *
+     * @return a new points-to set that contains the objects in given pts
+     * but not in this set before the call.
+     */
+    default PointsToSet addAllDiff(PointsToSet pts) {
+        PointsToSet diff = new DelegatePointsToSet(Sets.newHybridSet());
+        for (CSObj obj : pts) {
+            if (addObject(obj)) {
+                diff.addObject(obj);
+            }
+        }
+        return diff;
+    }
+
     /**
      * @return true if this set contains given object, otherwise false.
      */
@@ -23,26 +23,85 @@
 package pascal.taie.analysis.pta.pts;
 
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.config.ConfigException;
 import pascal.taie.util.collection.Sets;
 
-import java.util.Set;
+import javax.annotation.Nullable;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
 /**
- * Provides static factory methods for {@link PointsToSet}.
+ * Factory of {@link PointsToSet}. Each analysis run creates its own
+ * factory, thus the runs (e.g., a pre-analysis and the main analysis)
+ * may use different kinds of points-to sets.
  */
 public class PointsToSetFactory {
 
-    private static final Supplier<Set<CSObj>> setFactory = Sets::newHybridSet;
+    private final Supplier<PointsToSet> maker;
 
-    public static PointsToSet make() {
-        return new DelegatePointsToSet(setFactory.get());
+    private PointsToSetFactory(Supplier<PointsToSet> maker) {
+        this.maker = maker;
+    }
+
+    /**
+     * Creates the factory of given kind of points-to sets, i.e.,
+     * "hash" (default), "bitset" or "shared".
+     *
+     * @param kind    the kind of points-to sets, or null for the default.
+     * @param indexer converts indexes back to CS objects, which is
+     *                required by bit sets.
+     */
+    public static PointsToSetFactory of(@Nullable String kind,
+                                        IntFunction<CSObj> indexer) {
+        if (kind == null) {
+            return ofHashSets();
+        }
+        return switch (kind) {
+            case "hash" -> ofHashSets();
+            case "bitset" -> ofBitSets(indexer);
+            case "shared" -> ofSharedSets();
+            default -> throw new ConfigException(
+                    "Unexpected kind of points-to sets: " + kind);
+        };
+    }
+
+    /**
+     * @return a factory of points-to sets backed by hash sets.
+     */
+    public static PointsToSetFactory ofHashSets() {
+        return new PointsToSetFactory(
+                () -> new DelegatePointsToSet(Sets.newHybridSet()));
+    }
+
+    /**
+     * Creates a factory of points-to sets backed by sparse bit sets.
+     * This requires the {@link CSObj}s to be numbered densely.
+     *
+     * @param indexer converts indexes back to CS objects.
+     */
+    public static PointsToSetFactory ofBitSets(IntFunction<CSObj> indexer) {
+        return new PointsToSetFactory(() -> new BitSetPointsToSet(indexer));
+    }
+
+    /**
+     * @return a factory of points-to sets that share canonical immutable
+     * sets of objects, so that the pointers with identical points-to sets
+     * store the objects only once. The sets made by the factory share
+     * one {@link PointsToSetPool}.
+     */
+    public static PointsToSetFactory ofSharedSets() {
+        PointsToSetPool pool = new PointsToSetPool();
+        return new PointsToSetFactory(() -> new SharedPointsToSet(pool));
+    }
+
+    public PointsToSet make() {
+        return maker.get();
     }
 
     /**
      * Convenient method for making one-element points-to set.
      */
-    public static PointsToSet make(CSObj obj) {
+    public PointsToSet make(CSObj obj) {
         PointsToSet set = make();
         set.addObject(obj);
         return set;
@@ -0,0 +1,231 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.pts;
+
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Pool of canonical (hash-consed) immutable sets of {@link CSObj}s.
+ * Each distinct set of objects is stored only once, and is identified
+ * by an id, so that the results of unions and differences can be memoized
+ * on pairs of ids. The pool is thread-safe.
+ * <p>
+ * The pool does not keep canonical sets alive: it refers to them by
+ * weak references, so a set is reclaimed once no points-to set
+ * (or memo entry) uses it any more. The memo tables are bounded by
+ * {@link #MEMO_CAPACITY}, and are cleared when they are full.
+ */
+class PointsToSetPool {
+
+    /**
+     * Maximum number of entries of each memo table.
+     */
+    static final int MEMO_CAPACITY = 1 << 16;
+
+    /**
+     * Canonical immutable set of objects.
+     */
+    record Canonical(int id, Set<CSObj> objects) {
+    }
+
+    /**
+     * Weak reference to a canonical set, which remembers the hash code
+     * of the set, so that it can be removed from {@link #sets}
+     * after the set is reclaimed.
+     */
+    private static class CanonicalRef extends WeakReference<Canonical> {
+
+        private final int hash;
+
+        private CanonicalRef(Canonical canonical, int hash,
+                             ReferenceQueue<Canonical> queue) {
+            super(canonical, queue);
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Counter for ids of canonical sets. Ids are never reused, thus
+     * the memo entries of reclaimed sets can never be hit again.
+     */
+    private int counter = 0;
+
+    /**
+     * Map from hash codes to the canonical sets with the hash codes.
+     * Guarded by this pool.
+     */
+    private final Map<Integer, List<CanonicalRef>> sets = Maps.newMap();
+
+    private final ReferenceQueue<Canonical> queue = new ReferenceQueue<>();
+
+    private final Map<CSObj, Canonical> singletons = new ConcurrentHashMap<>();
+
+    private final Map<Long, Canonical> unions = new ConcurrentHashMap<>();
+
+    private final Map<Long, Canonical> diffs = new ConcurrentHashMap<>();
+
+    private final Canonical empty = intern(Set.of());
+
+    Canonical empty() {
+        return empty;
+    }
+
+    Canonical singleton(CSObj obj) {
+        Canonical singleton = singletons.get(obj);
+        if (singleton == null) {
+            singleton = intern(Set.of(obj));
+            Canonical prev = singletons.putIfAbsent(obj, singleton);
+            if (prev != null) {
+                singleton = prev;
+            }
+        }
+        return singleton;
+    }
+
+    /**
+     * @return the canonical set with the same objects as given set.
+     * Given set is copied if it is not canonical yet.
+     */
+    synchronized Canonical intern(Set<CSObj> objects) {
+        expungeStaleRefs();
+        int hash = objects.hashCode();
+        List<CanonicalRef> refs = sets.computeIfAbsent(hash,
+                unused -> new ArrayList<>(1));
+        for (CanonicalRef ref : refs) {
+            Canonical canonical = ref.get();
+            if (canonical != null && canonical.objects().equals(objects)) {
+                return canonical;
+            }
+        }
+        Set<CSObj> copy = Collections.unmodifiableSet(
+                Sets.newHybridSet(objects));
+        Canonical canonical = new Canonical(counter++, copy);
+        refs.add(new CanonicalRef(canonical, hash, queue));
+        return canonical;
+    }
+
+    /**
+     * Removes the references to reclaimed canonical sets.
+     */
+    private void expungeStaleRefs() {
+        Reference<? extends Canonical> ref;
+        while ((ref = queue.poll()) != null) {
+            int hash = ((CanonicalRef) ref).hash;
+            List<CanonicalRef> refs = sets.get(hash);
+            if (refs != null) {
+                refs.remove(ref);
+                if (refs.isEmpty()) {
+                    sets.remove(hash);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the canonical set of the union of s1 and s2.
+     */
+    Canonical union(Canonical s1, Canonical s2) {
+        if (s1 == s2 || s2 == empty) {
+            return s1;
+        }
+        if (s1 == empty) {
+            return s2;
+        }
+        // union is commutative, thus the key is independent of the order
+        long key = s1.id() < s2.id() ? pair(s1, s2) : pair(s2, s1);
+        return memoize(unions, key, () -> {
+            Canonical small = s1.objects().size() < s2.objects().size() ? s1 : s2;
+            Canonical large = small == s1 ? s2 : s1;
+            if (large.objects().containsAll(small.objects())) {
+                return large;
+            }
+            Set<CSObj> result = Sets.newHybridSet(large.objects());
+            result.addAll(small.objects());
+            return intern(result);
+        });
+    }
+
+    /**
+     * @return the canonical set of the objects in s1 but not in s2.
+     */
+    Canonical diff(Canonical s1, Canonical s2) {
+        if (s1 == s2 || s1 == empty) {
+            return empty;
+        }
+        if (s2 == empty) {
+            return s1;
+        }
+        return memoize(diffs, pair(s1, s2), () -> {
+            Set<CSObj> result = Sets.newHybridSet();
+            for (CSObj obj : s1.objects()) {
+                if (!s2.objects().contains(obj)) {
+                    result.add(obj);
+                }
+            }
+            return result.size() == s1.objects().size() ? s1 : intern(result);
+        });
+    }
+
+    /**
+     * Looks up given memo table, and computes and records the result
+     * if it is absent. The table is cleared when it is full, which keeps
+     * it from growing quadratically in the number of canonical sets.
+     */
+    private static Canonical memoize(Map<Long, Canonical> memo, long key,
+                                     Supplier<Canonical> compute) {
+        Canonical result = memo.get(key);
+        if (result == null) {
+            result = compute.get();
+            if (memo.size() >= MEMO_CAPACITY) {
+                memo.clear();
+            }
+            memo.put(key, result);
+        }
+        return result;
+    }
+
+    private static long pair(Canonical s1, Canonical s2) {
+        return ((long) s1.id() << 32) | s2.id();
+    }
+
+    /**
+     * @return the number of distinct live sets in this pool.
+     */
+    synchronized int size() {
+        expungeStaleRefs();
+        return sets.values().stream().mapToInt(List::size).sum();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.pts;
+
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Points-to set whose content is a canonical immutable set shared by all
+ * points-to sets with the same objects (see {@link PointsToSetPool}).
+ * Adding objects to this set replaces its content by another canonical
+ * set (copy-on-write), and the unions/differences are memoized by the pool.
+ */
+class SharedPointsToSet implements PointsToSet {
+
+    private final PointsToSetPool pool;
+
+    private PointsToSetPool.Canonical set;
+
+    SharedPointsToSet(PointsToSetPool pool) {
+        this(pool, pool.empty());
+    }
+
+    private SharedPointsToSet(PointsToSetPool pool, PointsToSetPool.Canonical set) {
+        this.pool = pool;
+        this.set = set;
+    }
+
+    @Override
+    public boolean addObject(CSObj obj) {
+        if (set.objects().contains(obj)) {
+            return false;
+        }
+        set = pool.union(set, pool.singleton(obj));
+        return true;
+    }
+
+    @Override
+    public boolean addAll(PointsToSet pts) {
+        PointsToSetPool.Canonical old = set;
+        set = pool.union(set, canonicalize(pts));
+        return set != old;
+    }
+
+    @Override
+    public PointsToSet addAllDiff(PointsToSet pts) {
+        PointsToSetPool.Canonical diff = pool.diff(canonicalize(pts), set);
+        set = pool.union(set, diff);
+        return new SharedPointsToSet(pool, diff);
+    }
+
+    private PointsToSetPool.Canonical canonicalize(PointsToSet pts) {
+        return pts instanceof SharedPointsToSet shared && shared.pool == pool ?
+                shared.set : pool.intern(pts.getObjects());
+    }
+
+    @Override
+    public boolean contains(CSObj obj) {
+        return set.objects().contains(obj);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return set.objects().isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return set.objects().size();
+    }
+
+    @Override
+    public Set<CSObj> getObjects() {
+        return set.objects();
+    }
+
+    @Override
+    public Stream<CSObj> objects() {
+        return set.objects().stream();
+    }
+
+    @Override
+    public String toString() {
+        return set.objects().toString();
+    }
+}
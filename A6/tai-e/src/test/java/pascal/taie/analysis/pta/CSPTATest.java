@@ -22,8 +22,26 @@
 
 package pascal.taie.analysis.pta;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Test;
+import pascal.taie.World;
 import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.pta.core.cs.selector.DegradableSelector;
+import pascal.taie.analysis.pta.cs.CSPTA;
+import pascal.taie.language.classes.JMethod;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class CSPTATest {
 
@@ -54,11 +72,23 @@ public class CSPTATest {
         Tests.testCSPTA(DIR, "InstanceField");
     }
 
+    @Test
+    public void testManyFields() {
+        // an object with more instance fields than a small map holds
+        Tests.testCSPTA(DIR, "ManyFields", "cs:1-obj");
+    }
+
     @Test
     public void testOneCall() {
         Tests.testCSPTA(DIR, "OneCall", "cs:1-call");
     }
 
+    @Test
+    public void testOneCallPlan() {
+        Tests.testCSPTA(DIR, "OneCall", "cs:ci",
+                "cs-plan:src/test/resources/pta/cspta/OneCall-plan.txt");
+    }
+
     @Test
     public void testOneObject() {
         Tests.testCSPTA(DIR, "OneObject", "cs:1-obj");
@@ -93,4 +123,120 @@ public class CSPTATest {
     public void testArray() {
         Tests.testCSPTA(DIR, "Array");
     }
+
+    @Test
+    public void testTypeHeapModel() {
+        Tests.testCSPTA(DIR, "TypeHeap", "heap-model:type");
+    }
+
+    @Test
+    public void testMahjongHeapModel() {
+        // the objects pointed to by a1 and a2 (and the B objects
+        // of their fields) are merged, but not the one pointed to by a3
+        Tests.testCSPTA(DIR, "Mahjong", "heap-model:mahjong");
+    }
+
+    @Test
+    public void testBitSetPointsToSets() {
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", "pts:bitset");
+    }
+
+    @Test
+    public void testSharedPointsToSets() {
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", "pts:shared");
+    }
+
+    @Test
+    public void testParallel() {
+        // the parallel rounds reach the same fixed point as the sequential
+        // solver, on programs with fields, arrays, calls and contexts
+        Tests.testCSPTA(DIR, "TwoObject", "cs:2-obj", "threads:4");
+        Tests.testCSPTA(DIR, "InstanceField", "threads:4");
+        Tests.testCSPTA(DIR, "Array", "threads:4");
+        Tests.testCSPTA(DIR, "StaticField", "threads:4");
+        Tests.testCSPTA(DIR, "OneCall", "cs:1-call", "threads:4");
+        Tests.testCSPTA(DIR, "TwoCall", "cs:2-call", "threads:4");
+        Tests.testCSPTA(DIR, "TwoType", "cs:2-type", "threads:4");
+        Tests.testCSPTA(DIR, "ManyFields", "cs:1-obj", "threads:4");
+    }
+
+    @Test
+    public void testDegradation() {
+        // 1 MB budget is exhausted after the first object, when main() is
+        // the only method with no more than one context, thus all methods
+        // are degraded to CI, and x and y point to both A and B
+        // (which are separated by 2-obj)
+        Tests.testCSPTA(DIR, "Degrade", "cs:2-obj",
+                "memory-budget:1", "degrade-to:ci");
+        PointerAnalysisResult result = World.get().getResult(CSPTA.ID);
+        Set<JMethod> degraded = result.getResult(DegradableSelector.class.getName());
+        assertEquals(Set.of(
+                        "<A: void <init>()>",
+                        "<B: void <init>()>",
+                        "<Box: void <init>()>",
+                        "<Box: void set(java.lang.Object)>",
+                        "<Box: java.lang.Object get()>",
+                        "<java.lang.Object: void <init>()>"),
+                degraded.stream()
+                        .map(JMethod::getSignature)
+                        .collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void testCheckpoint() throws IOException {
+        Path checkpoint = Files.createTempFile("OneObject", ".checkpoint");
+        Files.delete(checkpoint);
+        try {
+            // the first run saves its final state to the checkpoint,
+            // and the second run resumes from the checkpoint
+            Tests.testCSPTA(DIR, "OneObject", "cs:1-obj", "checkpoint:" + checkpoint);
+            assertTrue(Files.exists(checkpoint));
+            Tests.testCSPTA(DIR, "OneObject", "cs:1-obj", "checkpoint:" + checkpoint);
+        } finally {
+            Files.deleteIfExists(checkpoint);
+        }
+    }
+
+    @Test
+    public void testDiagnostics() throws IOException {
+        Path csv = Files.createTempFile("OneObject", ".csv");
+        Path json = Files.createTempFile("OneObject", ".json");
+        try {
+            // interval 0 takes a sample after each propagation step,
+            // besides the sample of the final result
+            Tests.testCSPTA(DIR, "OneObject", "cs:1-obj",
+                    "diagnostics:" + csv, "diagnostics-interval:0",
+                    "diagnostics-top:3");
+            List<String> lines = Files.readAllLines(csv);
+            assertEquals("sample,category,rank,element,value", lines.get(0));
+            assertTrue(lines.stream().anyMatch(l -> l.startsWith("0s,")));
+            assertTrue(lines.stream().anyMatch(l -> l.startsWith("final,")));
+            List<String> vars = lines.stream()
+                    .filter(l -> l.contains(",var-pts-size,"))
+                    .toList();
+            assertFalse(vars.isEmpty());
+            // variables are labeled as method/var
+            vars.forEach(l -> assertTrue(l, l.contains(">/")));
+
+            Tests.testCSPTA(DIR, "OneObject", "cs:1-obj",
+                    "diagnostics:" + json, "diagnostics-top:3");
+            JsonNode samples = new ObjectMapper().readTree(json.toFile());
+            // without interval, only the final result is sampled
+            assertEquals(1, samples.size());
+            JsonNode sample = samples.get(0);
+            assertEquals("final", sample.get("label").asText());
+            JsonNode rankings = sample.get("rankings");
+            List<String> categories = new ArrayList<>();
+            rankings.fieldNames().forEachRemaining(categories::add);
+            assertEquals(List.of("method-contexts", "var-pts-size",
+                    "obj-heap-contexts", "field-pts-size"), categories);
+            JsonNode varRanking = rankings.get("var-pts-size");
+            assertEquals(3, varRanking.size());
+            varRanking.forEach(entry -> assertTrue(
+                    entry.get("element").asText().matches("<.+>/.+")));
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(json);
+        }
+    }
 }
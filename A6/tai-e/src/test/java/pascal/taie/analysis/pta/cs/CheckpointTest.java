@@ -0,0 +1,98 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.cs;
+
+import org.junit.Test;
+import pascal.taie.World;
+import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.pta.core.cs.CSCallGraph;
+import pascal.taie.analysis.pta.core.cs.element.ArrayBasedCSManager;
+import pascal.taie.analysis.pta.core.cs.selector.CISelector;
+import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
+import pascal.taie.config.AnalysisOptions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CheckpointTest {
+
+    private static final String DIR = "cspta";
+
+    @Test
+    public void testResumeMidSolve() throws IOException {
+        Path file = Files.createTempFile("Call", ".checkpoint");
+        Files.delete(file);
+        try {
+            // builds the world of the program
+            Tests.testCSPTA(DIR, "Call");
+            // the options of the next run, which are required by the
+            // heap model and checkpoint tag
+            Map<String, Object> map = new HashMap<>();
+            map.put("cs", "ci");
+            map.put("merge-string-constants", false);
+            map.put("merge-string-objects", false);
+            map.put("merge-string-builders", false);
+            map.put("merge-exception-objects", true);
+            map.put("checkpoint", file.toString());
+            AnalysisOptions options = new AnalysisOptions(map);
+            // right after initialization, the objects allocated in
+            // main() are still pending in the work list
+            Solver solver = new Solver(options,
+                    new AllocationSiteBasedModel(options), new CISelector());
+            solver.initialize();
+            solver.saveCheckpoint();
+            assertPending(file, options);
+            // the next run resumes from the mid-solve checkpoint,
+            // and reaches the same result as a run from scratch
+            Tests.testCSPTA(DIR, "Call", "checkpoint:" + file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Asserts that the work list and pointer flow graph in given
+     * checkpoint are not empty.
+     */
+    private static void assertPending(Path file, AnalysisOptions options) {
+        PointsToSetFactory ptsFactory = PointsToSetFactory.ofHashSets();
+        ArrayBasedCSManager csManager = new ArrayBasedCSManager(ptsFactory);
+        HeapModel heapModel = new AllocationSiteBasedModel(options);
+        PointerFlowGraph pointerFlowGraph = new PointerFlowGraph();
+        WorkList workList = new WorkList();
+        Checkpoint checkpoint = new Checkpoint(file, Solver.getCheckpointTag(
+                options, World.get().getMainMethod()));
+        assertTrue(checkpoint.restore(csManager, ptsFactory, heapModel,
+                new CSCallGraph(csManager), pointerFlowGraph, workList));
+        assertFalse(workList.isEmpty());
+        assertFalse(pointerFlowGraph.getSources().isEmpty());
+    }
+}
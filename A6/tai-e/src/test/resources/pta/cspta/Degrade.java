@@ -0,0 +1,33 @@
+class Degrade {
+
+    public static void main(String[] args) {
+        // the first object is an array, which reaches no method,
+        // thus the budget is checked before any callee is analyzed
+        Object[] a = new Object[1];
+        Box b1 = new Box();
+        b1.set(new A());
+        Box b2 = new Box();
+        b2.set(new B());
+        Object x = b1.get();
+        Object y = b2.get();
+    }
+}
+
+class Box {
+
+    Object item;
+
+    void set(Object item) {
+        this.item = item;
+    }
+
+    Object get() {
+        return this.item;
+    }
+}
+
+class A {
+}
+
+class B {
+}
@@ -0,0 +1,25 @@
+class ManyFields {
+
+    public static void main(String[] args) {
+        Record r = new Record();
+        r.f0 = new Item();
+        r.f1 = new Item();
+        r.f2 = new Item();
+        r.f3 = new Item();
+        r.f4 = new Item();
+        r.f5 = new Item();
+        r.f6 = new Item();
+        r.f7 = new Item();
+        r.f8 = new Item();
+        r.f9 = new Item();
+        Item x = r.f9;
+        Item y = r.f0;
+    }
+}
+
+class Record {
+    Item f0, f1, f2, f3, f4, f5, f6, f7, f8, f9;
+}
+
+class Item {
+}
@@ -0,0 +1,17 @@
+public class TypeHeap {
+
+    public static void main(String[] args) {
+        A a1 = new A();
+        A a2 = new A();
+        B b = new B();
+        a1.f = b;
+        B x = a2.f; // type-based model merges a1 and a2
+    }
+}
+
+class A {
+    B f;
+}
+
+class B {
+}
@@ -54,6 +54,10 @@ import pascal.taie.ir.stmt.*;
 import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Maps;
+
+import java.util.List;
+import java.util.Map;
 
 class Solver {
 
@@ -75,6 +79,11 @@ class Solver {
 
     private PointerAnalysisResult result;
 
+    /**
+     * Constraint templates of the reachable methods.
+     */
+    private final Map<JMethod, ConstraintTemplate> templates = Maps.newMap();
+
     Solver(AnalysisOptions options, HeapModel heapModel,
            ContextSelector contextSelector) {
         this.options = options;
@@ -106,100 +115,56 @@ class Solver {
     private void addReachable(CSMethod csMethod) {
         // TODO - finish me
         if (callGraph.addReachableMethod(csMethod)) {
-            StmtProcessor stmtProcessor = new StmtProcessor(csMethod);
-            for (Stmt stmt : csMethod.getMethod().getIR().getStmts()) {
-                stmt.accept(stmtProcessor);
-            }
+            ConstraintTemplate template = templates.computeIfAbsent(
+                    csMethod.getMethod(),
+                    m -> ConstraintTemplate.build(m, heapModel));
+            instantiate(template, csMethod);
         }
     }
 
     /**
-     * Processes the statements in context-sensitive new reachable methods.
+     * Instantiates the constraint template of a method with its context.
      */
-    private class StmtProcessor implements StmtVisitor<Void> {
-
-        private final CSMethod csMethod;
-
-        private final Context context;
-
-        private StmtProcessor(CSMethod csMethod) {
-            this.csMethod = csMethod;
-            this.context = csMethod.getContext();
+    private void instantiate(ConstraintTemplate template, CSMethod csMethod) {
+        Context context = csMethod.getContext();
+        for (ConstraintTemplate.Alloc alloc : template.allocs) {
+            Obj obj = alloc.obj();
+            Context heapContext = contextSelector.selectHeapContext(csMethod, obj);
+            workList.addEntry(csManager.getCSVar(context, alloc.lhs()),
+                    PointsToSetFactory.make(csManager.getCSObj(heapContext, obj)));
         }
-
-        // TODO - if you choose to implement addReachable()
-        //  via visitor pattern, then finish me
-        public Void visit(New stmt) {
-            workList.addEntry(
-                    csManager.getCSVar(this.context, stmt.getLValue()),
-                    PointsToSetFactory.make(
-                            csManager.getCSObj(
-                                    contextSelector.selectHeapContext(csMethod, heapModel.getObj(stmt)),
-                                    heapModel.getObj(stmt)
-                            )
-                    )
-            );
-            return null;
+        for (ConstraintTemplate.Assign assign : template.assigns) {
+            addPFGEdge(csManager.getCSVar(context, assign.from()),
+                    csManager.getCSVar(context, assign.to()));
         }
-
-        public Void visit(Copy stmt) {
-            addPFGEdge(
-                    csManager.getCSVar(this.context, stmt.getRValue()),
-                    csManager.getCSVar(this.context, stmt.getLValue())
-            );
-            return null;
+        for (ConstraintTemplate.StaticLoad load : template.staticLoads) {
+            addPFGEdge(csManager.getStaticField(load.field()),
+                    csManager.getCSVar(context, load.lhs()));
         }
-
-        public Void visit(LoadField stmt) {
-            if (stmt.isStatic()) {
-                addPFGEdge(
-                        csManager.getStaticField(stmt.getFieldRef().resolve()),
-                        csManager.getCSVar(this.context, stmt.getLValue())
-                );
-            }
-            return null;
+        for (ConstraintTemplate.StaticStore store : template.staticStores) {
+            addPFGEdge(csManager.getCSVar(context, store.rhs()),
+                    csManager.getStaticField(store.field()));
         }
-
-        public Void visit(StoreField stmt) {
-            if (stmt.isStatic()) {
-                addPFGEdge(
-                        csManager.getCSVar(this.context, stmt.getRValue()),
-                        csManager.getStaticField(stmt.getFieldRef().resolve())
-                );
+        for (ConstraintTemplate.StaticCall call : template.staticCalls) {
+            Invoke callSite = call.callSite();
+            JMethod callee = call.callee();
+            CSCallSite csCallSite = csManager.getCSCallSite(context, callSite);
+            Context calleeContext = contextSelector.selectContext(csCallSite, callee);
+            CSMethod csCallee = csManager.getCSMethod(calleeContext, callee);
+            addReachable(csCallee);
+            List<Var> args = callSite.getInvokeExp().getArgs();
+            for (int i = 0; i < args.size(); i++) {
+                addPFGEdge(csManager.getCSVar(context, args.get(i)),
+                        csManager.getCSVar(calleeContext, callee.getIR().getParam(i)));
             }
-            return null;
-        }
-
-        public Void visit(Invoke stmt) {
-            if (stmt.isStatic()) {
-                JMethod targetMethod = resolveCallee(null, stmt);
-                Context targetContext = contextSelector.selectContext(
-                        csManager.getCSCallSite(this.context, stmt),
-                        targetMethod
-                );
-                addReachable(csManager.getCSMethod(targetContext, targetMethod));
-                for (int i = 0; i < stmt.getInvokeExp().getArgCount(); i++) {
-                    addPFGEdge(
-                            csManager.getCSVar(this.context, stmt.getInvokeExp().getArg(i)),
-                            csManager.getCSVar(targetContext, targetMethod.getIR().getParam(i))
-                    );
-                }
-                if (stmt.getLValue() != null) {
-                    for (Var var : targetMethod.getIR().getReturnVars()) {
-                        addPFGEdge(
-                                csManager.getCSVar(targetContext, var),
-                                csManager.getCSVar(this.context, stmt.getLValue())
-                        );
-                    }
+            Var lhs = callSite.getLValue();
+            if (lhs != null) {
+                for (Var ret : callee.getIR().getReturnVars()) {
+                    addPFGEdge(csManager.getCSVar(calleeContext, ret),
+                            csManager.getCSVar(context, lhs));
                 }
-                callGraph.addEdge(new Edge<>(
-                                CallGraphs.getCallKind(stmt),
-                                csManager.getCSCallSite(this.context, stmt),
-                                csManager.getCSMethod(targetContext, targetMethod)
-                        )
-                );
             }
-            return null;
+            callGraph.addEdge(new Edge<>(call.kind(), csCallSite, csCallee));
         }
     }
 
@@ -22,11 +22,15 @@
 
 package pascal.taie.analysis.pta.core.cs.element;
 
+import pascal.taie.World;
+import pascal.taie.language.classes.ClassNames;
 import pascal.taie.language.type.ArrayType;
 import pascal.taie.language.type.Type;
 
 /**
- * Represents array index pointers.
+ * Represents array index pointers. The array index pointers of non-array
+ * objects represent the elements of containers (e.g., collections),
+ * which are modeled by element-level taint transfers.
  */
 public class ArrayIndex extends AbstractPointer {
 
@@ -45,8 +49,9 @@ public class ArrayIndex extends AbstractPointer {
 
     @Override
     public Type getType() {
-        return ((ArrayType) array.getObject().getType())
-                .elementType();
+        return array.getObject().getType() instanceof ArrayType arrayType ?
+                arrayType.elementType() :
+                World.get().getTypeSystem().getClassType(ClassNames.OBJECT);
     }
 
     @Override
@@ -44,18 +44,30 @@ public class _2CallSelector implements ContextSelector {
     @Override
     public Context selectContext(CSCallSite callSite, JMethod callee) {
         // TODO - finish me
-        return null;
+        Context callSiteContext = callSite.getContext();
+        if (callSiteContext.getLength() == 0) {
+            return ListContext.make(callSite.getCallSite());
+        }
+        return ListContext.make(callSiteContext.getElementAt(callSiteContext.getLength() - 1), callSite.getCallSite());
     }
 
     @Override
     public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
         // TODO - finish me
-        return null;
+        Context callSiteContext = callSite.getContext();
+        if (callSiteContext.getLength() == 0) {
+            return ListContext.make(callSite.getCallSite());
+        }
+        return ListContext.make(callSiteContext.getElementAt(callSiteContext.getLength() - 1), callSite.getCallSite());
     }
 
     @Override
     public Context selectHeapContext(CSMethod method, Obj obj) {
         // TODO - finish me
-        return null;
+        Context heapContext = method.getContext();
+        if (heapContext.getLength() == 0) {
+            return getEmptyContext();
+        }
+        return ListContext.make(heapContext.getElementAt(heapContext.getLength() - 1));
     }
 }
@@ -43,18 +43,27 @@ public class _2ObjSelector implements ContextSelector {
     @Override
     public Context selectContext(CSCallSite callSite, JMethod callee) {
         // TODO - finish me
-        return null;
+        return callSite.getContext();
     }
 
     @Override
     public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
         // TODO - finish me
-        return null;
+        Context objContext = recv.getContext();
+        int length = objContext.getLength();
+        if (length == 0) {
+            return ListContext.make(recv.getObject());
+        }
+        return ListContext.make(objContext.getElementAt(length - 1), recv.getObject());
     }
 
     @Override
     public Context selectHeapContext(CSMethod method, Obj obj) {
         // TODO - finish me
-        return null;
+        Context heapContext = method.getContext();
+        if (heapContext.getLength() == 0) {
+            return getEmptyContext();
+        }
+        return ListContext.make(heapContext.getElementAt(heapContext.getLength() - 1));
     }
 }
@@ -44,18 +44,27 @@ public class _2TypeSelector implements ContextSelector {
     @Override
     public Context selectContext(CSCallSite callSite, JMethod callee) {
         // TODO - finish me
-        return null;
+        return callSite.getContext();
     }
 
     @Override
     public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
         // TODO - finish me
-        return null;
+        Context objContext = recv.getContext();
+        int length = objContext.getLength();
+        if (length == 0) {
+            return ListContext.make(recv.getObject().getContainerType());
+        }
+        return ListContext.make(objContext.getElementAt(length - 1), recv.getObject().getContainerType());
     }
 
     @Override
     public Context selectHeapContext(CSMethod method, Obj obj) {
         // TODO - finish me
-        return null;
+        Context heapContext = method.getContext();
+        if (heapContext.getLength() == 0) {
+            return getEmptyContext();
+        }
+        return ListContext.make(heapContext.getElementAt(heapContext.getLength() - 1));
     }
 }
@@ -24,10 +24,16 @@ package pascal.taie.analysis.pta.cs;
 
 import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.PointerAnalysisResultImpl;
+import pascal.taie.analysis.pta.core.cs.CSCallGraph;
+import pascal.taie.analysis.pta.core.cs.element.CSManager;
+import pascal.taie.analysis.pta.core.cs.element.MapBasedCSManager;
 import pascal.taie.analysis.pta.core.cs.selector.CISelector;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
 import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
 import pascal.taie.analysis.pta.plugin.ResultProcessor;
+import pascal.taie.analysis.pta.plugin.taint.SparseTaintAnalysis;
+import pascal.taie.analysis.pta.plugin.taint.TaintFlow;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.config.AnalysisOptions;
 import pascal.taie.config.ConfigException;
@@ -35,6 +41,8 @@ import pascal.taie.util.Strings;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Context-sensitive pointer analysis.
@@ -50,6 +58,13 @@ public class CSPTA extends ProgramAnalysis {
     @Override
     public PointerAnalysisResult analyze() {
         AnalysisOptions options = getOptions();
+        // option "taint-engine" is either "pta" (default) or "sparse"
+        String engine = options.getString("taint-engine");
+        if ("sparse".equals(engine)) {
+            return analyzeTaintOnly(options);
+        } else if (engine != null && !engine.equals("pta")) {
+            throw new ConfigException("Unknown taint engine: " + engine);
+        }
         Solver solver = new Solver(options,
                 new AllocationSiteBasedModel(options),
                 getContextSelector(options.getString("cs")));
@@ -59,6 +74,35 @@ public class CSPTA extends ProgramAnalysis {
         return result;
     }
 
+    /**
+     * Runs {@link SparseTaintAnalysis} instead of the pointer analysis.
+     * The returned result contains no points-to sets, but only
+     * the detected taint flows.
+     */
+    private static PointerAnalysisResult analyzeTaintOnly(AnalysisOptions options) {
+        // the sparse engine reports all flows at the end of the analysis,
+        // and keeps no propagation paths, thus it supports neither
+        // early exit, streaming of flows, nor witnesses
+        if (options.get("taint-flow-limit") != null &&
+                options.getInt("taint-flow-limit") > 0) {
+            throw new ConfigException(
+                    "taint-flow-limit is not supported by taint-engine: sparse");
+        }
+        for (String key : List.of("taint-flow-stream", "taint-witness-limit")) {
+            if (options.get(key) != null) {
+                throw new ConfigException(
+                        key + " is not supported by taint-engine: sparse");
+            }
+        }
+        Set<TaintFlow> taintFlows = new SparseTaintAnalysis(options).analyze();
+        CSManager csManager = new MapBasedCSManager();
+        PointerAnalysisResult result = new PointerAnalysisResultImpl(
+                csManager, new CSCallGraph(csManager));
+        result.storeResult(SparseTaintAnalysis.class.getName(), taintFlows);
+        ResultProcessor.process(options, result);
+        return result;
+    }
+
     private static ContextSelector getContextSelector(String cs) {
         if (cs.equals("ci")) {
             return new CISelector();
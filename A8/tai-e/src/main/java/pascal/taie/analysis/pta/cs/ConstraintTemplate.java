@@ -0,0 +1,146 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.cs;
+
+import pascal.taie.analysis.graph.callgraph.CallGraphs;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Copy;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StmtVisitor;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Context-independent constraints of a method, i.e., the allocations,
+ * copies, static field accesses and static calls in the method, with
+ * fields, objects and callees resolved.
+ * <p>
+ * A template is built once for each method, and instantiated for each
+ * context of the method, so that the IR of the method is walked only once.
+ */
+class ConstraintTemplate {
+
+    /**
+     * Allocation: lhs = new T, where obj is the abstract object of the site.
+     */
+    record Alloc(Var lhs, Obj obj) {
+    }
+
+    /**
+     * Copy: to = from.
+     */
+    record Assign(Var from, Var to) {
+    }
+
+    /**
+     * Static load: lhs = T.field.
+     */
+    record StaticLoad(JField field, Var lhs) {
+    }
+
+    /**
+     * Static store: T.field = rhs.
+     */
+    record StaticStore(Var rhs, JField field) {
+    }
+
+    /**
+     * Static call, whose callee does not depend on contexts.
+     */
+    record StaticCall(Invoke callSite, JMethod callee) {
+    }
+
+    final List<Alloc> allocs = new ArrayList<>();
+
+    final List<Assign> assigns = new ArrayList<>();
+
+    final List<StaticLoad> staticLoads = new ArrayList<>();
+
+    final List<StaticStore> staticStores = new ArrayList<>();
+
+    final List<StaticCall> staticCalls = new ArrayList<>();
+
+    private ConstraintTemplate() {
+    }
+
+    /**
+     * Builds the constraint template for given method.
+     */
+    static ConstraintTemplate build(JMethod method, HeapModel heapModel) {
+        ConstraintTemplate template = new ConstraintTemplate();
+        StmtVisitor<Void> builder = new StmtVisitor<>() {
+
+            @Override
+            public Void visit(New stmt) {
+                template.allocs.add(new Alloc(stmt.getLValue(), heapModel.getObj(stmt)));
+                return null;
+            }
+
+            @Override
+            public Void visit(Copy stmt) {
+                template.assigns.add(new Assign(stmt.getRValue(), stmt.getLValue()));
+                return null;
+            }
+
+            @Override
+            public Void visit(LoadField stmt) {
+                if (stmt.isStatic()) {
+                    template.staticLoads.add(new StaticLoad(
+                            stmt.getFieldRef().resolve(), stmt.getLValue()));
+                }
+                return null;
+            }
+
+            @Override
+            public Void visit(StoreField stmt) {
+                if (stmt.isStatic()) {
+                    template.staticStores.add(new StaticStore(
+                            stmt.getRValue(), stmt.getFieldRef().resolve()));
+                }
+                return null;
+            }
+
+            @Override
+            public Void visit(Invoke stmt) {
+                if (stmt.isStatic()) {
+                    template.staticCalls.add(new StaticCall(stmt,
+                            CallGraphs.resolveCallee(null, stmt)));
+                }
+                return null;
+            }
+        };
+        for (Stmt stmt : method.getIR().getStmts()) {
+            stmt.accept(builder);
+        }
+        return template;
+    }
+}
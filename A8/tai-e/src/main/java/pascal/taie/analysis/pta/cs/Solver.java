@@ -50,6 +50,7 @@ import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.*;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Maps;
 
 import java.util.*;
 
@@ -75,14 +76,16 @@ public class Solver {
 
     private PointerAnalysisResult result;
 
-    private Map<CSVar, Set<Invoke>> taintTransfers;
+    /**
+     * Constraint templates of the reachable methods.
+     */
+    private final Map<JMethod, ConstraintTemplate> templates = Maps.newMap();
 
     Solver(AnalysisOptions options, HeapModel heapModel,
            ContextSelector contextSelector) {
         this.options = options;
         this.heapModel = heapModel;
         this.contextSelector = contextSelector;
-        this.taintTransfers = new HashMap<>();
     }
 
     public AnalysisOptions getOptions() {
@@ -122,105 +125,44 @@ public class Solver {
      */
     private void addReachable(CSMethod csMethod) {
         if (callGraph.addReachableMethod(csMethod)) {
-            StmtProcessor stmtProcessor = new StmtProcessor(csMethod);
-            for (Stmt stmt : csMethod.getMethod().getIR().getStmts()) {
-                stmt.accept(stmtProcessor);
-            }
+            ConstraintTemplate template = templates.computeIfAbsent(
+                    csMethod.getMethod(),
+                    m -> ConstraintTemplate.build(m, heapModel));
+            instantiate(template, csMethod);
         }
     }
 
     /**
-     * Processes the statements in context-sensitive new reachable methods.
+     * Instantiates the constraint template of a method with its context.
      */
-    private class StmtProcessor implements StmtVisitor<Void> {
-
-        private final CSMethod csMethod;
-
-        private final Context context;
-
-        private StmtProcessor(CSMethod csMethod) {
-            this.csMethod = csMethod;
-            this.context = csMethod.getContext();
-        }
-
-        @Override
-        public Void visit(New stmt) {
-            workList.addEntry(
-                    csManager.getCSVar(this.context, stmt.getLValue()),
-                    PointsToSetFactory.make(
-                            csManager.getCSObj(
-                                    contextSelector.selectHeapContext(csMethod, heapModel.getObj(stmt)),
-                                    heapModel.getObj(stmt)
-                            )
-                    )
-            );
-            return null;
+    private void instantiate(ConstraintTemplate template, CSMethod csMethod) {
+        Context context = csMethod.getContext();
+        for (ConstraintTemplate.Alloc alloc : template.allocs) {
+            Obj obj = alloc.obj();
+            Context heapContext = contextSelector.selectHeapContext(csMethod, obj);
+            workList.addEntry(csManager.getCSVar(context, alloc.lhs()),
+                    PointsToSetFactory.make(csManager.getCSObj(heapContext, obj)));
         }
-
-        @Override
-        public Void visit(Copy stmt) {
-            addPFGEdge(
-                    csManager.getCSVar(context, stmt.getRValue()),
-                    csManager.getCSVar(context, stmt.getLValue())
-            );
-            return null;
+        for (ConstraintTemplate.Assign assign : template.assigns) {
+            addPFGEdge(csManager.getCSVar(context, assign.from()),
+                    csManager.getCSVar(context, assign.to()));
         }
-
-        @Override
-        public Void visit(LoadField stmt) {
-            if (stmt.isStatic()) {
-                addPFGEdge(
-                        csManager.getStaticField(stmt.getFieldRef().resolve()),
-                        csManager.getCSVar(context, stmt.getLValue())
-                );
-            }
-            return null;
+        for (ConstraintTemplate.StaticLoad load : template.staticLoads) {
+            addPFGEdge(csManager.getStaticField(load.field()),
+                    csManager.getCSVar(context, load.lhs()));
         }
-
-        @Override
-        public Void visit(StoreField stmt) {
-            if (stmt.isStatic()) {
-                addPFGEdge(
-                        csManager.getCSVar(context, stmt.getRValue()),
-                        csManager.getStaticField(stmt.getFieldRef().resolve())
-                );
-            }
-            return null;
+        for (ConstraintTemplate.StaticStore store : template.staticStores) {
+            addPFGEdge(csManager.getCSVar(context, store.rhs()),
+                    csManager.getStaticField(store.field()));
         }
-
-        @Override
-        public Void visit(Invoke callSite) {
-            if (callSite.isStatic()) {
-                JMethod callee = resolveCallee(null, callSite);
-                CSCallSite csCallSite = csManager.getCSCallSite(context, callSite);
-                Context calleeContext = contextSelector.selectContext(csCallSite, callee);
-                processOneCall(csCallSite, csManager.getCSMethod(calleeContext, callee));
-                transferTaint(csCallSite, callee, null);
-            }
-            for (Stmt stmt : csMethod.getMethod().getIR().getStmts()) {
-                if (stmt instanceof Invoke invoke) {
-                    for (Var arg : invoke.getInvokeExp().getArgs()) {
-                        CSVar var = csManager.getCSVar(context, arg);
-                        Set<Invoke> invokes = taintTransfers.getOrDefault(var, new HashSet<>());
-                        invokes.add(invoke);
-                        taintTransfers.put(var, invokes);
-                    }
-                }
-            }
-            return null;
+        for (ConstraintTemplate.StaticCall call : template.staticCalls) {
+            JMethod callee = call.callee();
+            CSCallSite csCallSite = csManager.getCSCallSite(context, call.callSite());
+            Context calleeContext = contextSelector.selectContext(csCallSite, callee);
+            processOneCall(csCallSite, csManager.getCSMethod(calleeContext, callee));
         }
     }
 
-    private void transferTaint(CSCallSite csCallSite, JMethod callee, CSVar base) {
-        taintAnalysis.handleTaintTransfer(csCallSite, callee, base).forEach(varObjPair -> {
-            Var var = varObjPair.first();
-            Obj obj = varObjPair.second();
-            CSObj csObj = csManager.getCSObj(contextSelector.getEmptyContext(), obj);
-            Pointer ptr = csManager.getCSVar(csCallSite.getContext(), var);
-            workList.addEntry(ptr, PointsToSetFactory.make(csObj));
-        });
-    }
-
     /**
      * Adds an edge "source -> target" to the PFG.
      */
@@ -230,6 +172,7 @@ public class Solver {
             PointsToSet pts = source.getPointsToSet();
             if (!pts.isEmpty()) {
                 workList.addEntry(target, pts);
+                taintAnalysis.recordFlow(source, target, pts);
             }
         }
     }
@@ -241,6 +184,9 @@ public class Solver {
         while (!workList.isEmpty()) {
             WorkList.Entry head = workList.pollEntry();
             PointsToSet delta = propagate(head.pointer(), head.pointsToSet());
+            if (!delta.isEmpty()) {
+                taintAnalysis.onNewPointsToSet(head.pointer(), delta);
+            }
             if (head.pointer() instanceof CSVar varptr) {
                 Var var = varptr.getVar();
                 for (CSObj obj : delta) {
@@ -270,24 +216,12 @@ public class Solver {
                     }
                     // ProcessCall
                     processCall(varptr, obj);
-                    // TaintTransfer
-                    if (taintAnalysis.isTaint(obj.getObject())) {
-                        taintTransfers.getOrDefault(varptr, new HashSet<>()).forEach(invoke -> {
-                            CSCallSite csCallSite = csManager.getCSCallSite(varptr.getContext(), invoke);
-                            if (invoke.getInvokeExp() instanceof InvokeInstanceExp exp) {
-                                CSVar recv = csManager.getCSVar(varptr.getContext(), exp.getBase());
-                                result.getPointsToSet(recv).forEach(recvObj -> {
-                                    JMethod callee = resolveCallee(recvObj, invoke);
-                                    transferTaint(csCallSite, callee, recv);
-                                });
-                            } else {
-                                JMethod callee = resolveCallee(null, invoke);
-                                transferTaint(csCallSite, callee, null);
-                            }
-                        });
-                    }
                 }
             }
+            if (taintAnalysis.isDone()) {
+                logger.info("Stopped early after detecting enough taint flows");
+                return;
+            }
         }
     }
 
@@ -308,6 +242,7 @@ public class Solver {
         if (!delta.isEmpty()) {
             for (Pointer s : pointerFlowGraph.getSuccsOf(pointer)) {
                 workList.addEntry(s, delta);
+                taintAnalysis.recordFlow(pointer, s, delta);
             }
         }
         return delta;
@@ -315,30 +250,29 @@ public class Solver {
 
     private void processOneCall(CSCallSite csCallSite, CSMethod callee) {
         Invoke invoke = csCallSite.getCallSite();
-        Obj obj = taintAnalysis.produceTaintObj(invoke, callee.getMethod());
-        Var lVar = csCallSite.getCallSite().getLValue();
-        if (obj != null && lVar != null) {
-            CSObj csObj = csManager.getCSObj(contextSelector.getEmptyContext(), obj);
-            Pointer ptr = csManager.getCSVar(csCallSite.getContext(), lVar);
-            workList.addEntry(ptr, PointsToSetFactory.make(csObj));
-        }
         Context callerContext = csCallSite.getContext();
         Context targetContext = callee.getContext();
         if (callGraph.addEdge(new Edge<>(CallGraphs.getCallKind(invoke), csCallSite, callee))) {
             addReachable(callee);
+            CSVar base = invoke.getInvokeExp() instanceof InvokeInstanceExp exp ?
+                    csManager.getCSVar(callerContext, exp.getBase()) : null;
+            taintAnalysis.onNewCallEdge(csCallSite, callee.getMethod(), base);
             List<Var> args = callee.getMethod().getIR().getParams();
             for (int i = 0; i < args.size(); i++) {
-                addPFGEdge(
-                        csManager.getCSVar(callerContext, invoke.getRValue().getArg(i)),
-                        csManager.getCSVar(targetContext, args.get(i))
-                );
+                CSVar arg = csManager.getCSVar(callerContext, invoke.getRValue().getArg(i));
+                CSVar param = csManager.getCSVar(targetContext, args.get(i));
+                // taint objects stop at the arguments sanitized by callee
+                if (!taintAnalysis.addSanitizedArgEdge(arg, param, callee.getMethod(), i)) {
+                    addPFGEdge(arg, param);
+                }
             }
             if (invoke.getLValue() != null) {
+                CSVar lhs = csManager.getCSVar(callerContext, invoke.getLValue());
                 for (Var ret : callee.getMethod().getIR().getReturnVars()) {
-                    addPFGEdge(
-                            csManager.getCSVar(targetContext, ret),
-                            csManager.getCSVar(callerContext, invoke.getLValue())
-                    );
+                    CSVar csRet = csManager.getCSVar(targetContext, ret);
+                    if (!taintAnalysis.addSanitizedResultEdge(csRet, lhs, callee.getMethod())) {
+                        addPFGEdge(csRet, lhs);
+                    }
                 }
             }
         }
@@ -356,12 +290,12 @@ public class Solver {
             JMethod callee = resolveCallee(recvObj, callSite);
             Context calleeContext = contextSelector.selectContext(csCallSite, recvObj, callee);
             CSMethod csCallee = csManager.getCSMethod(calleeContext, callee);
-            workList.addEntry(
-                    csManager.getCSVar(calleeContext, callee.getIR().getThis()),
-                    PointsToSetFactory.make(recvObj)
-            );
+            CSVar thisVar = csManager.getCSVar(calleeContext, callee.getIR().getThis());
+            if (!taintAnalysis.isSanitizedReceiver(recvObj, callee)) {
+                workList.addEntry(thisVar, PointsToSetFactory.make(recvObj));
+                taintAnalysis.recordFlow(recv, thisVar, recvObj);
+            }
             processOneCall(csCallSite, csCallee);
-            transferTaint(csCallSite, callee, recv);
         });
     }
 
@@ -378,6 +312,13 @@ public class Solver {
         return CallGraphs.resolveCallee(type, callSite);
     }
 
+    /**
+     * Adds given points-to set to the points-to set of pointer.
+     */
+    public void addPointsTo(Pointer pointer, PointsToSet pts) {
+        workList.addEntry(pointer, pts);
+    }
+
     public PointerAnalysisResult getResult() {
         if (result == null) {
             result = new PointerAnalysisResultImpl(csManager, callGraph);
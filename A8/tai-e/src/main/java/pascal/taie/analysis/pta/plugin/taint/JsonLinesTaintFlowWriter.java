@@ -0,0 +1,84 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.plugin.taint;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pascal.taie.analysis.graph.callgraph.CallGraphs;
+import pascal.taie.util.AnalysisException;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes each taint flow as one JSON object per line, e.g.,
+ * <pre>{"category":"...","source":"...","sink":"...","index":0}</pre>
+ * to a file or {@link System#out}.
+ */
+class JsonLinesTaintFlowWriter implements TaintFlowListener {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final PrintStream out;
+
+    /**
+     * @param output path of the output file, or "stdout".
+     */
+    JsonLinesTaintFlowWriter(String output) {
+        if (output.equals("stdout")) {
+            out = System.out;
+        } else {
+            try {
+                out = new PrintStream(new FileOutputStream(output));
+            } catch (FileNotFoundException e) {
+                throw new AnalysisException("Failed to open output file " + output, e);
+            }
+        }
+    }
+
+    @Override
+    public void onTaintFlow(TaintFlow flow, String category) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("category", category);
+        json.put("source", CallGraphs.toString(flow.sourceCall()));
+        json.put("sink", CallGraphs.toString(flow.sinkCall()));
+        json.put("index", flow.index());
+        try {
+            out.println(mapper.writeValueAsString(json));
+        } catch (JsonProcessingException e) {
+            throw new AnalysisException("Failed to write taint flow " + flow, e);
+        }
+        // flush so that the flow is visible before the analysis finishes
+        out.flush();
+    }
+
+    @Override
+    public void onFinish() {
+        if (out != System.out) {
+            out.close();
+        }
+    }
+}
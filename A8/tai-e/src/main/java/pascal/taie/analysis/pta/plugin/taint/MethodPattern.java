@@ -0,0 +1,167 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.plugin.taint;
+
+import pascal.taie.config.ConfigException;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.classes.Subsignature;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Pattern of methods in taint configs. A pattern has the form of
+ * method signature, i.e., "&lt;C: R m(P)&gt;", except that:
+ * <ul>
+ *     <li>class name C can be followed by '+', which matches C and
+ *     all its subclasses (and implementors if C is an interface);
+ *     <li>class name C and subsignature "R m(P)" can contain '*',
+ *     which matches any (possibly empty) sequence of characters.
+ * </ul>
+ * For example, "&lt;java.util.Collection+: boolean add(java.lang.Object)&gt;"
+ * matches all overrides of Collection.add(Object).
+ */
+final class MethodPattern {
+
+    private static final String SUBCLASSES = "+";
+
+    private static final String WILDCARD = "*";
+
+    private final String pattern;
+
+    /**
+     * Class name without {@link #SUBCLASSES}, or its regex if it
+     * contains wildcards.
+     */
+    private final String className;
+
+    private final Pattern classRegex;
+
+    private final boolean withSubclasses;
+
+    /**
+     * Subsignature, or its regex if it contains wildcards.
+     */
+    private final String subsignature;
+
+    private final Pattern subsignatureRegex;
+
+    private MethodPattern(String pattern) {
+        this.pattern = pattern;
+        int colon = pattern.indexOf(':');
+        if (!pattern.startsWith("<") || !pattern.endsWith(">") || colon < 0) {
+            throw new ConfigException("Invalid method pattern: " + pattern);
+        }
+        String c = pattern.substring(1, colon).strip();
+        withSubclasses = c.endsWith(SUBCLASSES);
+        className = withSubclasses ?
+                c.substring(0, c.length() - SUBCLASSES.length()) : c;
+        classRegex = toRegex(className);
+        subsignature = pattern.substring(colon + 1, pattern.length() - 1).strip();
+        subsignatureRegex = toRegex(subsignature);
+    }
+
+    /**
+     * @return true if given method signature is a pattern that may match
+     * multiple methods, rather than an exact signature.
+     */
+    static boolean isPattern(String method) {
+        return method.contains(WILDCARD) || method.contains(SUBCLASSES + ":");
+    }
+
+    /**
+     * @throws ConfigException if given pattern is invalid.
+     */
+    static MethodPattern parse(String pattern) {
+        return new MethodPattern(pattern);
+    }
+
+    /**
+     * @return the methods in the class hierarchy that match this pattern.
+     */
+    Set<JMethod> resolve(ClassHierarchy hierarchy) {
+        List<JClass> classes = new ArrayList<>();
+        if (classRegex == null) {
+            JClass c = hierarchy.getClass(className);
+            if (c != null) {
+                classes.add(c);
+            }
+        } else {
+            hierarchy.allClasses()
+                    .filter(c -> classRegex.matcher(c.getName()).matches())
+                    .forEach(classes::add);
+        }
+        Set<JClass> candidates = Sets.newSet();
+        for (JClass c : classes) {
+            candidates.add(c);
+            if (withSubclasses) {
+                candidates.addAll(hierarchy.getAllSubclassesOf(c, true));
+            }
+        }
+        Set<JMethod> methods = Sets.newSet();
+        for (JClass c : candidates) {
+            if (subsignatureRegex == null) {
+                JMethod method = c.getDeclaredMethod(Subsignature.get(subsignature));
+                if (method != null) {
+                    methods.add(method);
+                }
+            } else {
+                for (JMethod method : c.getDeclaredMethods()) {
+                    if (subsignatureRegex.matcher(
+                            method.getSubsignature().toString()).matches()) {
+                        methods.add(method);
+                    }
+                }
+            }
+        }
+        return methods;
+    }
+
+    /**
+     * @return the regex of given string if it contains wildcards,
+     * otherwise null.
+     */
+    private static Pattern toRegex(String s) {
+        if (!s.contains(WILDCARD)) {
+            return null;
+        }
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        for (int i = s.indexOf(WILDCARD); i >= 0; i = s.indexOf(WILDCARD, start)) {
+            regex.append(Pattern.quote(s.substring(start, i))).append(".*");
+            start = i + WILDCARD.length();
+        }
+        regex.append(Pattern.quote(s.substring(start)));
+        return Pattern.compile(regex.toString());
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
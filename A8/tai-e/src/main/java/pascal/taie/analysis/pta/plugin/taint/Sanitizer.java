@@ -0,0 +1,45 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.plugin.taint;
+
+import pascal.taie.language.classes.JMethod;
+
+/**
+ * Represents a sanitizer that consists of a sanitizer method and
+ * a sanitized index, i.e., an argument (or the base variable) whose taint
+ * objects do not flow into the method, or the result whose taint objects
+ * do not flow out of the method.
+ * <p>
+ * As the pointer analysis is flow-insensitive, a sanitizer only stops
+ * the taint objects at the call boundary: it does not untaint
+ * the variables of the caller. For example, after {@code check(s)}
+ * (or {@code s.check()}) sanitizes {@code s}, the later uses of
+ * {@code s} in the caller are still tainted.
+ */
+record Sanitizer(JMethod method, int index) {
+
+    @Override
+    public String toString() {
+        return method + "/" + TaintTransfer.toString(index);
+    }
+}
@@ -0,0 +1,445 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.plugin.taint;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.analysis.graph.callgraph.CallGraphs;
+import pascal.taie.analysis.graph.callgraph.CallKind;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.ir.exp.InvokeExp;
+import pascal.taie.ir.exp.InvokeInstanceExp;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.proginfo.MethodRef;
+import pascal.taie.ir.stmt.*;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ArrayType;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Taint analysis that propagates only taint objects, without computing
+ * the points-to sets of ordinary objects.
+ * <p>
+ * It follows the pointer flow rules of the pointer analysis in a
+ * context-insensitive manner, and resolves call sites by class hierarchy
+ * analysis (CHA), as the receiver objects are unknown. Since the base
+ * objects of field and array accesses are unknown as well, instance
+ * fields are field-based (one node per field), and array elements are
+ * merged by the types of the arrays. Thus, this analysis is cheaper but
+ * less precise than the taint analysis on top of the pointer analysis,
+ * while it reports the taint flows in the same format.
+ */
+public class SparseTaintAnalysis {
+
+    private static final Logger logger = LogManager.getLogger(SparseTaintAnalysis.class);
+
+    private final List<TaintCategory> categories;
+
+    private final ClassHierarchy hierarchy;
+
+    /**
+     * Node of the elements of all arrays of a type. The elements of all
+     * non-array containers (modeled by element-level taint transfers)
+     * are merged to the node whose type is null.
+     */
+    private record ArrayNode(Type type) {
+    }
+
+    /**
+     * Taint objects of each node, i.e., {@link Var}, {@link JField}
+     * or {@link ArrayNode}.
+     */
+    private final Map<Object, Set<Obj>> taints = Maps.newMap();
+
+    /**
+     * Flow edges between the nodes.
+     */
+    private final MultiMap<Object, Object> succs = Maps.newMultiMap();
+
+    /**
+     * Taint transfer edges, which convert taint objects to given types.
+     */
+    private final MultiMap<Object, TransferEdge> transferEdges = Maps.newMultiMap();
+
+    private record TransferEdge(Object target, Type type, TaintCategory category) {
+    }
+
+    /**
+     * Edges through sanitizer calls, which stop the taint objects
+     * of given categories.
+     */
+    private final MultiMap<Object, SanitizedEdge> sanitizedEdges = Maps.newMultiMap();
+
+    private record SanitizedEdge(Object target, Set<TaintCategory> categories) {
+    }
+
+    /**
+     * Sink points of each variable.
+     */
+    private final MultiMap<Var, SinkPoint> sinkPoints = Maps.newMultiMap();
+
+    private record SinkPoint(Invoke sinkCall, int index, TaintCategory category) {
+    }
+
+    private final Set<JMethod> reachableMethods = Sets.newSet();
+
+    private final MultiMap<Invoke, JMethod> callEdges = Maps.newMultiMap();
+
+    /**
+     * Cache of the CHA callees of virtual/interface method references.
+     */
+    private final Map<MethodRef, Set<JMethod>> chaCallees = Maps.newMap();
+
+    private final Queue<Entry> workList = new ArrayDeque<>();
+
+    private record Entry(Object node, Set<Obj> taints) {
+    }
+
+    private final Set<TaintFlow> taintFlows = new TreeSet<>();
+
+    public SparseTaintAnalysis(AnalysisOptions options) {
+        hierarchy = World.get().getClassHierarchy();
+        categories = TaintCategory.load(options, hierarchy,
+                World.get().getTypeSystem());
+    }
+
+    /**
+     * Runs the analysis from the main method.
+     *
+     * @return the detected taint flows of all categories.
+     */
+    public Set<TaintFlow> analyze() {
+        addReachable(World.get().getMainMethod());
+        while (!workList.isEmpty()) {
+            Entry entry = workList.poll();
+            Set<Obj> delta = propagate(entry.node(), entry.taints());
+            if (!delta.isEmpty() && entry.node() instanceof Var var) {
+                processNewTaints(var, delta);
+            }
+        }
+        logger.info("{} reachable methods, {} taint flows",
+                reachableMethods.size(), taintFlows.size());
+        return taintFlows;
+    }
+
+    private void addReachable(JMethod method) {
+        if (method.isAbstract() || !reachableMethods.add(method)) {
+            return;
+        }
+        for (Stmt stmt : method.getIR().getStmts()) {
+            if (stmt instanceof Copy copy) {
+                addEdge(copy.getRValue(), copy.getLValue());
+            } else if (stmt instanceof LoadField load) {
+                addEdge(load.getFieldRef().resolve(), load.getLValue());
+            } else if (stmt instanceof StoreField store) {
+                addEdge(store.getRValue(), store.getFieldRef().resolve());
+            } else if (stmt instanceof LoadArray load) {
+                addEdge(new ArrayNode(load.getArrayAccess().getBase().getType()),
+                        load.getLValue());
+            } else if (stmt instanceof StoreArray store) {
+                addEdge(store.getRValue(),
+                        new ArrayNode(store.getArrayAccess().getBase().getType()));
+            } else if (stmt instanceof Invoke invoke) {
+                for (JMethod callee : resolveCallees(invoke)) {
+                    addCallEdge(invoke, callee);
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolves the callees of a call site. Static and special calls have
+     * unique callees, and virtual/interface calls are resolved by CHA.
+     * Like the pointer analysis, invokedynamic calls are not resolved.
+     */
+    private Set<JMethod> resolveCallees(Invoke invoke) {
+        if (invoke.isDynamic()) {
+            return Set.of();
+        }
+        CallKind kind = CallGraphs.getCallKind(invoke);
+        if (kind == CallKind.STATIC || kind == CallKind.SPECIAL) {
+            JMethod callee = CallGraphs.resolveCallee(null, invoke);
+            return callee != null ? Set.of(callee) : Set.of();
+        }
+        MethodRef methodRef = invoke.getMethodRef();
+        return chaCallees.computeIfAbsent(methodRef, ref -> {
+            Set<JMethod> callees = Sets.newHybridSet();
+            for (JClass c : hierarchy.getAllSubclassesOf(ref.getDeclaringClass(), true)) {
+                if (!c.isAbstract()) {
+                    JMethod callee = hierarchy.dispatch(c, ref);
+                    if (callee != null && !callee.isAbstract()) {
+                        callees.add(callee);
+                    }
+                }
+            }
+            return callees;
+        });
+    }
+
+    private void addCallEdge(Invoke invoke, JMethod callee) {
+        if (!callEdges.put(invoke, callee)) {
+            return;
+        }
+        addReachable(callee);
+        InvokeExp invokeExp = invoke.getInvokeExp();
+        if (!callee.isAbstract()) {
+            List<Var> params = callee.getIR().getParams();
+            for (int i = 0; i < params.size(); ++i) {
+                addCallFlowEdge(invokeExp.getArg(i), params.get(i), callee, i);
+            }
+            if (invoke.getLValue() != null) {
+                for (Var ret : callee.getIR().getReturnVars()) {
+                    addCallFlowEdge(ret, invoke.getLValue(), callee, TaintTransfer.RESULT);
+                }
+            }
+        }
+        Var base = invokeExp instanceof InvokeInstanceExp exp ? exp.getBase() : null;
+        for (TaintCategory category : categories) {
+            addTaintEdges(invoke, callee, base, category);
+        }
+    }
+
+    /**
+     * Adds the sources, sinks and taint transfers of given category
+     * that are introduced by a call edge.
+     */
+    private void addTaintEdges(Invoke invoke, JMethod callee, Var base,
+                               TaintCategory category) {
+        TaintConfig config = category.config();
+        InvokeExp invokeExp = invoke.getInvokeExp();
+        // source
+        Type returnType = callee.getReturnType();
+        if (invoke.getLValue() != null &&
+                config.getSourceTypes(callee).contains(returnType)) {
+            addTaints(invoke.getLValue(),
+                    Set.of(category.makeTaint(invoke, returnType)));
+        }
+        // sinks
+        for (int i : config.getSinkIndexes(callee)) {
+            if (i < invokeExp.getArgCount()) {
+                Var arg = invokeExp.getArg(i);
+                SinkPoint sinkPoint = new SinkPoint(invoke, i, category);
+                if (sinkPoints.put(arg, sinkPoint)) {
+                    collectTaintFlows(getTaints(arg), sinkPoint);
+                }
+            }
+        }
+        // taint transfers
+        for (TaintTransfer transfer : config.getTransfers(callee)) {
+            Var to;
+            Type type;
+            if (transfer.to() == TaintTransfer.RESULT) {
+                to = invoke.getLValue();
+                type = returnType;
+            } else if (transfer.to() == TaintTransfer.BASE) {
+                to = base;
+                type = base != null ? base.getType() : null;
+            } else if (transfer.toAccess() != null && transfer.to() >= 0 &&
+                    transfer.to() < invokeExp.getArgCount()) {
+                to = invokeExp.getArg(transfer.to());
+                type = null;
+            } else {
+                continue;
+            }
+            if (to == null || (transfer.toAccess() == null &&
+                    !transfer.type().equals(type))) {
+                continue;
+            }
+            Var from;
+            if (transfer.from() == TaintTransfer.BASE) {
+                from = base;
+            } else if (transfer.from() >= 0 &&
+                    transfer.from() < invokeExp.getArgCount()) {
+                from = invokeExp.getArg(transfer.from());
+            } else {
+                from = null;
+            }
+            Object source = from != null ? access(from, transfer.fromAccess()) : null;
+            Object target = access(to, transfer.toAccess());
+            if (source != null && target != null) {
+                TransferEdge edge = new TransferEdge(target, transfer.type(), category);
+                if (transferEdges.put(source, edge)) {
+                    transferTaints(getTaints(source), edge);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an edge for the index-th argument (or result) of a call
+     * to callee, which is sanitized if callee is a sanitizer.
+     */
+    private void addCallFlowEdge(Var source, Var target, JMethod callee, int index) {
+        Set<TaintCategory> sanitizing = Sets.newHybridSet();
+        for (TaintCategory category : categories) {
+            if (category.config().getSanitizedIndexes(callee).contains(index)) {
+                sanitizing.add(category);
+            }
+        }
+        if (sanitizing.isEmpty()) {
+            addEdge(source, target);
+        } else {
+            SanitizedEdge edge = new SanitizedEdge(target, sanitizing);
+            if (sanitizedEdges.put(source, edge)) {
+                passSanitized(getTaints(source), edge);
+            }
+        }
+    }
+
+    private void passSanitized(Set<Obj> objs, SanitizedEdge edge) {
+        Set<Obj> passed = Sets.newHybridSet();
+        for (Obj obj : objs) {
+            if (!edge.categories().contains(TaintCategory.of(categories, obj))) {
+                passed.add(obj);
+            }
+        }
+        if (!passed.isEmpty()) {
+            addTaints(edge.target(), passed);
+        }
+    }
+
+    /**
+     * @return the node of given access on the objects pointed to by var,
+     * or var itself if access is null.
+     */
+    private Object access(Var var, String access) {
+        if (access == null) {
+            return var;
+        } else if (access.equals(TaintTransfer.ELEMENTS)) {
+            return new ArrayNode(var.getType() instanceof ArrayType ?
+                    var.getType() : null);
+        } else {
+            // fields are resolved on the declared type of var,
+            // as the objects are unknown
+            return TaintTransfer.getField(var.getType(), access);
+        }
+    }
+
+    private void addEdge(Object source, Object target) {
+        if (succs.put(source, target)) {
+            Set<Obj> sourceTaints = getTaints(source);
+            if (!sourceTaints.isEmpty()) {
+                addTaints(target, sourceTaints);
+            }
+        }
+    }
+
+    private void addTaints(Object node, Set<Obj> objs) {
+        workList.add(new Entry(node, objs));
+    }
+
+    private Set<Obj> getTaints(Object node) {
+        return taints.getOrDefault(node, Set.of());
+    }
+
+    /**
+     * Propagates taint objects to given node and its successors.
+     *
+     * @return the taint objects that are new to the node.
+     */
+    private Set<Obj> propagate(Object node, Set<Obj> objs) {
+        Set<Obj> nodeTaints = taints.computeIfAbsent(node, n -> Sets.newHybridSet());
+        Set<Obj> delta = Sets.newHybridSet();
+        for (Obj obj : objs) {
+            if (nodeTaints.add(obj)) {
+                delta.add(obj);
+            }
+        }
+        if (!delta.isEmpty()) {
+            for (Object succ : succs.get(node)) {
+                addTaints(succ, delta);
+            }
+            for (TransferEdge edge : transferEdges.get(node)) {
+                transferTaints(delta, edge);
+            }
+            for (SanitizedEdge edge : sanitizedEdges.get(node)) {
+                passSanitized(delta, edge);
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Processes the taint objects newly pointed to by a variable,
+     * which may reach sinks or be receivers of instance calls.
+     */
+    private void processNewTaints(Var var, Set<Obj> delta) {
+        for (SinkPoint sinkPoint : sinkPoints.get(var)) {
+            collectTaintFlows(delta, sinkPoint);
+        }
+        for (Invoke invoke : var.getInvokes()) {
+            for (Obj obj : delta) {
+                // taint objects are receivers of the methods
+                // dispatched on their types
+                JMethod callee = CallGraphs.resolveCallee(obj.getType(), invoke);
+                if (callee != null && !callee.isAbstract()) {
+                    addCallEdge(invoke, callee);
+                    TaintCategory category = TaintCategory.of(categories, obj);
+                    if (!category.config().getSanitizedIndexes(callee)
+                            .contains(TaintTransfer.BASE)) {
+                        addTaints(callee.getIR().getThis(), Set.of(obj));
+                    }
+                }
+            }
+        }
+    }
+
+    private void transferTaints(Set<Obj> objs, TransferEdge edge) {
+        TaintManager manager = edge.category().manager();
+        Set<Obj> converted = Sets.newHybridSet();
+        for (Obj obj : objs) {
+            if (manager.isTaint(obj)) {
+                converted.add(edge.category().makeTaint(
+                        manager.getSourceCall(obj), edge.type()));
+            }
+        }
+        if (!converted.isEmpty()) {
+            addTaints(edge.target(), converted);
+        }
+    }
+
+    private void collectTaintFlows(Set<Obj> objs, SinkPoint sinkPoint) {
+        TaintManager manager = sinkPoint.category().manager();
+        for (Obj obj : objs) {
+            if (manager.isTaint(obj)) {
+                taintFlows.add(new TaintFlow(manager.getSourceCall(obj),
+                        sinkPoint.sinkCall(), sinkPoint.index()));
+            }
+        }
+    }
+}
@@ -25,17 +25,21 @@ package pascal.taie.analysis.pta.plugin.taint;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pascal.taie.World;
-import pascal.taie.analysis.graph.callgraph.CallGraph;
-import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.core.cs.context.Context;
 import pascal.taie.analysis.pta.core.cs.element.*;
 import pascal.taie.analysis.pta.core.heap.Obj;
 import pascal.taie.analysis.pta.cs.Solver;
+import pascal.taie.analysis.pta.pts.PointsToSet;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
 import pascal.taie.util.collection.Pair;
+import pascal.taie.util.collection.Sets;
 
 import java.util.*;
 
@@ -43,9 +47,10 @@ public class TaintAnalysiss {
 
     private static final Logger logger = LogManager.getLogger(TaintAnalysiss.class);
 
-    private final TaintManager manager;
-
-    private final TaintConfig config;
+    /**
+     * Categories of the analysis, each of which has its own config.
+     */
+    private final List<TaintCategory> categories;
 
     private final Solver solver;
 
@@ -53,105 +58,500 @@ public class TaintAnalysiss {
 
     private final Context emptyContext;
 
+    /**
+     * Taint transfer edges from each pointer.
+     */
+    private final MultiMap<Pointer, TransferEdge> transferEdges = Maps.newMultiMap();
+
+    /**
+     * Taint transfer edge to a target pointer, which converts
+     * the taint objects of given category to given type.
+     */
+    private record TransferEdge(Pointer target, Type type, TaintCategory category) {
+    }
+
+    /**
+     * Element-level taint transfers of each variable, i.e., the transfers
+     * which access the elements or fields of the objects pointed to by
+     * the variable.
+     */
+    private final MultiMap<Pointer, AccessTransfer> accessTransfers = Maps.newMultiMap();
+
+    /**
+     * Taint transfer from/to the elements or fields of the objects pointed
+     * to by variables, which is expanded to the transfer edges between
+     * the element/field pointers when the variables point to new objects.
+     *
+     * @param fromAccess the access of variable from, or null if
+     *                   the taint objects are transferred from the variable.
+     * @param toAccess   the access of variable to, or null if
+     *                   the taint objects are transferred to the variable.
+     */
+    private record AccessTransfer(CSVar from, String fromAccess,
+                                  CSVar to, String toAccess,
+                                  Type type, TaintCategory category) {
+    }
+
+    /**
+     * Sanitized edges from each pointer, i.e., the edges that pass
+     * arguments to or results from sanitizer methods.
+     */
+    private final MultiMap<Pointer, SanitizedEdge> sanitizedEdges = Maps.newMultiMap();
+
+    /**
+     * Edge to a target pointer, which stops the taint objects
+     * of given categories and passes the other objects.
+     */
+    private record SanitizedEdge(Pointer target, Set<TaintCategory> categories) {
+    }
+
+    /**
+     * Sink points of each pointer, i.e., the sink calls that take
+     * the pointer as a sensitive argument.
+     */
+    private final MultiMap<Pointer, SinkPoint> sinkPoints = Maps.newMultiMap();
+
+    /**
+     * Sensitive argument of a sink call of given category.
+     */
+    private record SinkPoint(Invoke sinkCall, int index, TaintCategory category) {
+    }
+
+    /**
+     * Taint flows detected so far, of all categories.
+     */
+    private final Set<TaintFlow> taintFlows = new TreeSet<>();
+
+    /**
+     * Taint flows detected so far, of each category.
+     */
+    private final Map<TaintCategory, Set<TaintFlow>> categoryFlows = new LinkedHashMap<>();
+
+    private final List<TaintFlowListener> listeners = new ArrayList<>();
+
+    /**
+     * Maximum number of taint flows to detect, after which the analysis
+     * stops early, or 0 if unlimited.
+     */
+    private final int flowLimit;
+
+    /**
+     * Witnesses of taint flows, or null if they are not recorded.
+     */
+    private final TaintWitnesses witnesses;
+
+    /**
+     * The sink argument and the taint object at which each taint flow
+     * is first detected, i.e., the end of the witness path of the flow.
+     */
+    private final Map<TaintFlow, Pair<Pointer, CSObj>> flowEnds = Maps.newMap();
+
     public TaintAnalysiss(Solver solver) {
-        manager = new TaintManager();
         this.solver = solver;
         csManager = solver.getCSManager();
         emptyContext = solver.getContextSelector().getEmptyContext();
-        config = TaintConfig.readConfig(
-                solver.getOptions().getString("taint-config"),
+        // option "taint-config" may give multiple config files separated
+        // by ',', which are analyzed as different categories
+        categories = TaintCategory.load(solver.getOptions(),
                 World.get().getClassHierarchy(),
                 World.get().getTypeSystem());
-        logger.info(config);
+        categories.forEach(category -> {
+            logger.info(category.config());
+            categoryFlows.put(category, new TreeSet<>());
+        });
+        // streams detected taint flows to the file given by option
+        // "taint-flow-stream", or to standard output if it is "stdout"
+        String stream = solver.getOptions().getString("taint-flow-stream");
+        if (stream != null) {
+            addListener(new JsonLinesTaintFlowWriter(stream));
+        }
+        flowLimit = solver.getOptions().get("taint-flow-limit") != null ?
+                solver.getOptions().getInt("taint-flow-limit") : 0;
+        // witnesses are recorded only if their table size is given
+        witnesses = solver.getOptions().get("taint-witness-limit") != null ?
+                new TaintWitnesses(solver.getOptions().getInt("taint-witness-limit")) :
+                null;
+    }
+
+    public void addListener(TaintFlowListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @return true if enough taint flows have been detected,
+     * so that the analysis can stop early.
+     */
+    public boolean isDone() {
+        return flowLimit > 0 && taintFlows.size() >= flowLimit;
     }
 
     public boolean isTaint(Obj obj) {
-        return manager.isTaint(obj);
+        return TaintCategory.of(categories, obj) != null;
+    }
+
+    /**
+     * Processes a new call edge, which may call a source or a sink,
+     * or cause taint transfers.
+     *
+     * @param base the base variable of the call site, or null if
+     *             the call site is static.
+     */
+    public void onNewCallEdge(CSCallSite csCallSite, JMethod callee, CSVar base) {
+        for (TaintCategory category : categories) {
+            produceTaintObj(csCallSite, callee, category);
+            addSinkPoints(csCallSite, callee, category);
+            addTransferEdges(csCallSite, callee, base, category);
+        }
     }
 
     // Call (source)
-    public Obj produceTaintObj(Invoke callSite, JMethod callee) {
+    private void produceTaintObj(CSCallSite csCallSite, JMethod callee,
+                                 TaintCategory category) {
         Type type = callee.getReturnType();
-        if (config.getSources().contains(new Source(callee, type))) {
-            return manager.makeTaint(callSite, type);
+        Var lVar = csCallSite.getCallSite().getLValue();
+        if (lVar != null && category.config().getSourceTypes(callee).contains(type)) {
+            Obj taint = category.makeTaint(csCallSite.getCallSite(), type);
+            solver.addPointsTo(csManager.getCSVar(csCallSite.getContext(), lVar),
+                    PointsToSetFactory.make(csManager.getCSObj(emptyContext, taint)));
         }
-        return null;
     }
 
-    public Set<Pair<Var, Obj>> handleTaintTransfer(CSCallSite csCallSite, JMethod callee, CSVar base) {
+    /**
+     * Adds the sensitive arguments of a new call edge to sink as sink points,
+     * and reports the taint objects that already reach them.
+     */
+    private void addSinkPoints(CSCallSite csCallSite, JMethod callee,
+                               TaintCategory category) {
+        Set<Integer> sinkIndexes = category.config().getSinkIndexes(callee);
+        if (sinkIndexes.isEmpty()) {
+            return;
+        }
         Invoke callSite = csCallSite.getCallSite();
-        Var lVar = callSite.getLValue();
-        PointerAnalysisResult ptaResult = solver.getResult();
-        Set<Pair<Var, Obj>> result = new HashSet<>();
-        TaintTransfer transfer;
-        if (base != null) {
-            transfer = new TaintTransfer(callee, TaintTransfer.BASE, TaintTransfer.RESULT, callee.getReturnType());
-            if (config.getTransfers().contains(transfer) && lVar != null) {
-                for (CSObj csObj : ptaResult.getPointsToSet(base)) {
-                    if (manager.isTaint(csObj.getObject())) {
-                        result.add(new Pair<>(lVar,
-                                manager.makeTaint(manager.getSourceCall(csObj.getObject()), callee.getReturnType())));
-                    }
+        List<Var> args = callSite.getInvokeExp().getArgs();
+        for (int i : sinkIndexes) {
+            if (i < args.size()) {
+                CSVar arg = csManager.getCSVar(csCallSite.getContext(), args.get(i));
+                SinkPoint sinkPoint = new SinkPoint(callSite, i, category);
+                if (sinkPoints.put(arg, sinkPoint)) {
+                    collectTaintFlows(arg, arg.getPointsToSet(), sinkPoint);
                 }
             }
-            Type baseType = base.getType();
-            List<Var> args = callSite.getInvokeExp().getArgs();
-            for (int i = 0; i < args.size(); i++) {
-                Var arg = args.get(i);
-                Set<CSObj> argPts = ptaResult.getPointsToSet(csManager.getCSVar(csCallSite.getContext(), arg));
-                transfer = new TaintTransfer(callee, i, TaintTransfer.BASE, baseType);
-                if (config.getTransfers().contains(transfer)) {
-                    argPts.forEach(csObj -> {
-                        if (manager.isTaint(csObj.getObject())) {
-                            result.add(new Pair<>(base.getVar(),
-                                    manager.makeTaint(manager.getSourceCall(csObj.getObject()), baseType)));
-                        }
-                    });
+        }
+    }
+
+    private void collectTaintFlows(Pointer arg, PointsToSet pts, SinkPoint sinkPoint) {
+        TaintCategory category = sinkPoint.category();
+        TaintManager manager = category.manager();
+        for (CSObj csObj : pts) {
+            if (isDone()) {
+                return;
+            }
+            if (manager.isTaint(csObj.getObject())) {
+                TaintFlow flow = new TaintFlow(manager.getSourceCall(csObj.getObject()),
+                        sinkPoint.sinkCall(), sinkPoint.index());
+                if (categoryFlows.get(category).add(flow)) {
+                    taintFlows.add(flow);
+                    if (witnesses != null) {
+                        flowEnds.putIfAbsent(flow, new Pair<>(arg, csObj));
+                    }
+                    listeners.forEach(l -> l.onTaintFlow(flow, category.name()));
                 }
             }
         }
+    }
+
+    /**
+     * Adds the taint transfer edges caused by a new call edge.
+     * Taint objects flow along these edges like PFG edges, except that
+     * only taint objects pass, and they are converted to the types of
+     * the edges.
+     */
+    private void addTransferEdges(CSCallSite csCallSite, JMethod callee, CSVar base,
+                                  TaintCategory category) {
+        Set<TaintTransfer> transfers = category.config().getTransfers(callee);
+        if (transfers.isEmpty()) {
+            return;
+        }
+        Invoke callSite = csCallSite.getCallSite();
         List<Var> args = callSite.getInvokeExp().getArgs();
-        Type resultType = callee.getReturnType();
-        for (int i = 0; i < args.size(); i++) {
-            Var arg = args.get(i);
-            Set<CSObj> argPts = ptaResult.getPointsToSet(csManager.getCSVar(csCallSite.getContext(), arg));
-            transfer = new TaintTransfer(callee, i, TaintTransfer.RESULT, resultType);
-            if (config.getTransfers().contains(transfer)) {
-                argPts.forEach(csObj -> {
-                    if (manager.isTaint(csObj.getObject())) {
-                        result.add(new Pair<>(lVar,
-                                manager.makeTaint(manager.getSourceCall(csObj.getObject()), resultType)));
-                    }
-                });
+        Context context = csCallSite.getContext();
+        for (TaintTransfer transfer : transfers) {
+            // the transfer to a variable applies only if its type matches
+            // the type of the variable, i.e., the declared type of base
+            // variable or the return type of callee
+            CSVar to;
+            Type type;
+            if (transfer.to() == TaintTransfer.RESULT) {
+                Var lVar = callSite.getLValue();
+                to = lVar != null ? csManager.getCSVar(context, lVar) : null;
+                type = callee.getReturnType();
+            } else if (transfer.to() == TaintTransfer.BASE) {
+                to = base;
+                type = base != null ? base.getType() : null;
+            } else if (transfer.toAccess() != null &&
+                    transfer.to() >= 0 && transfer.to() < args.size()) {
+                // arguments can only receive taint objects by their
+                // elements or fields
+                to = csManager.getCSVar(context, args.get(transfer.to()));
+                type = null;
+            } else {
+                continue;
+            }
+            if (to == null || (transfer.toAccess() == null &&
+                    !transfer.type().equals(type))) {
+                continue;
+            }
+            CSVar from;
+            if (transfer.from() == TaintTransfer.BASE) {
+                from = base;
+            } else if (transfer.from() >= 0 && transfer.from() < args.size()) {
+                from = csManager.getCSVar(context, args.get(transfer.from()));
+            } else {
+                from = null;
+            }
+            if (from == null) {
+                continue;
+            }
+            if (transfer.fromAccess() == null && transfer.toAccess() == null) {
+                TransferEdge edge = new TransferEdge(to, type, category);
+                if (transferEdges.put(from, edge)) {
+                    transferTaint(from, from.getPointsToSet(), edge);
+                }
+            } else {
+                AccessTransfer accessTransfer = new AccessTransfer(
+                        from, transfer.fromAccess(), to, transfer.toAccess(),
+                        transfer.type(), category);
+                boolean added = false;
+                if (transfer.fromAccess() != null) {
+                    added |= accessTransfers.put(from, accessTransfer);
+                }
+                if (transfer.toAccess() != null) {
+                    added |= accessTransfers.put(to, accessTransfer);
+                }
+                if (added) {
+                    expandAccessTransfer(accessTransfer,
+                            from.getPointsToSet(), to.getPointsToSet());
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the transfer edges of an element-level transfer for
+     * the objects of its variables.
+     *
+     * @param fromObjs objects of the "from" variable to be accessed.
+     * @param toObjs   objects of the "to" variable to be accessed.
+     */
+    private void expandAccessTransfer(AccessTransfer transfer,
+                                      PointsToSet fromObjs, PointsToSet toObjs) {
+        List<Pointer> sources = access(transfer.from(), transfer.fromAccess(), fromObjs);
+        if (sources.isEmpty()) {
+            return;
+        }
+        for (Pointer target : access(transfer.to(), transfer.toAccess(), toObjs)) {
+            TransferEdge edge = new TransferEdge(
+                    target, transfer.type(), transfer.category());
+            for (Pointer source : sources) {
+                if (transferEdges.put(source, edge)) {
+                    transferTaint(source, source.getPointsToSet(), edge);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the pointers of given access on the objects, or var itself
+     * if access is null.
+     */
+    private List<Pointer> access(CSVar var, String access, PointsToSet objs) {
+        if (access == null) {
+            return List.of(var);
+        }
+        List<Pointer> pointers = new ArrayList<>();
+        for (CSObj obj : objs) {
+            if (access.equals(TaintTransfer.ELEMENTS)) {
+                // for non-array objects, the array index pointer
+                // represents the elements of containers
+                pointers.add(csManager.getArrayIndex(obj));
+            } else {
+                JField field = TaintTransfer.getField(
+                        obj.getObject().getType(), access);
+                if (field != null) {
+                    pointers.add(csManager.getInstanceField(obj, field));
+                }
             }
         }
-        return result;
+        return pointers;
+    }
+
+    /**
+     * Adds an edge which passes the i-th argument to the corresponding
+     * parameter of callee, if callee sanitizes the argument.
+     *
+     * @return true if the edge is added, and then the solver should not
+     * add an ordinary PFG edge for the argument.
+     */
+    public boolean addSanitizedArgEdge(Pointer arg, Pointer param, JMethod callee, int i) {
+        return addSanitizedEdge(arg, param, callee, i);
+    }
+
+    /**
+     * Adds an edge which passes a return variable of callee to the
+     * variable that receives the result, if callee sanitizes its result.
+     *
+     * @return true if the edge is added, and then the solver should not
+     * add an ordinary PFG edge for the result.
+     */
+    public boolean addSanitizedResultEdge(Pointer ret, Pointer lhs, JMethod callee) {
+        return addSanitizedEdge(ret, lhs, callee, TaintTransfer.RESULT);
+    }
+
+    /**
+     * @return true if recvObj is a taint object which is sanitized
+     * when it is the receiver of callee.
+     */
+    public boolean isSanitizedReceiver(CSObj recvObj, JMethod callee) {
+        TaintCategory category = TaintCategory.of(categories, recvObj.getObject());
+        return category != null && category.config()
+                .getSanitizedIndexes(callee).contains(TaintTransfer.BASE);
+    }
+
+    private boolean addSanitizedEdge(Pointer source, Pointer target,
+                                     JMethod callee, int index) {
+        Set<TaintCategory> sanitizing = null;
+        for (TaintCategory category : categories) {
+            if (category.config().getSanitizedIndexes(callee).contains(index)) {
+                if (sanitizing == null) {
+                    sanitizing = Sets.newHybridSet();
+                }
+                sanitizing.add(category);
+            }
+        }
+        if (sanitizing == null) {
+            return false;
+        }
+        SanitizedEdge edge = new SanitizedEdge(target, sanitizing);
+        if (sanitizedEdges.put(source, edge)) {
+            passSanitized(source, source.getPointsToSet(), edge);
+        }
+        return true;
+    }
+
+    private void passSanitized(Pointer from, PointsToSet pts, SanitizedEdge edge) {
+        PointsToSet passed = PointsToSetFactory.make();
+        for (CSObj csObj : pts) {
+            TaintCategory category = TaintCategory.of(categories, csObj.getObject());
+            if (category == null || !edge.categories().contains(category)) {
+                passed.addObject(csObj);
+            }
+        }
+        if (!passed.isEmpty()) {
+            recordFlow(from, edge.target(), passed);
+            solver.addPointsTo(edge.target(), passed);
+        }
+    }
+
+    /**
+     * Reports the taint objects newly pointed to by pointer if it is
+     * a sink point, propagates them along the taint transfer edges
+     * and sanitized edges from pointer, and expands the element-level
+     * taint transfers which access the objects newly pointed to by pointer.
+     */
+    public void onNewPointsToSet(Pointer pointer, PointsToSet delta) {
+        for (SinkPoint sinkPoint : sinkPoints.get(pointer)) {
+            collectTaintFlows(pointer, delta, sinkPoint);
+        }
+        for (TransferEdge edge : transferEdges.get(pointer)) {
+            transferTaint(pointer, delta, edge);
+        }
+        for (AccessTransfer transfer : accessTransfers.get(pointer)) {
+            if (pointer.equals(transfer.from()) && transfer.fromAccess() != null) {
+                expandAccessTransfer(transfer, delta, transfer.to().getPointsToSet());
+            }
+            if (pointer.equals(transfer.to()) && transfer.toAccess() != null) {
+                expandAccessTransfer(transfer, transfer.from().getPointsToSet(), delta);
+            }
+        }
+        for (SanitizedEdge edge : sanitizedEdges.get(pointer)) {
+            passSanitized(pointer, delta, edge);
+        }
+    }
+
+    private void transferTaint(Pointer from, PointsToSet pts, TransferEdge edge) {
+        TaintManager manager = edge.category().manager();
+        PointsToSet taints = PointsToSetFactory.make();
+        for (CSObj csObj : pts) {
+            if (manager.isTaint(csObj.getObject())) {
+                Obj taint = edge.category().makeTaint(
+                        manager.getSourceCall(csObj.getObject()), edge.type());
+                CSObj csTaint = csManager.getCSObj(emptyContext, taint);
+                taints.addObject(csTaint);
+                if (witnesses != null) {
+                    witnesses.record(from, csObj, edge.target(), csTaint);
+                }
+            }
+        }
+        if (!taints.isEmpty()) {
+            solver.addPointsTo(edge.target(), taints);
+        }
+    }
+
+    /**
+     * Records that the taint objects in pts flow from pointer from
+     * to pointer to, if witnesses are enabled.
+     */
+    public void recordFlow(Pointer from, Pointer to, PointsToSet pts) {
+        if (witnesses != null) {
+            for (CSObj csObj : pts) {
+                recordFlow(from, to, csObj);
+            }
+        }
+    }
+
+    /**
+     * Records that obj flows from pointer from to pointer to,
+     * if witnesses are enabled and obj is a taint object.
+     */
+    public void recordFlow(Pointer from, Pointer to, CSObj obj) {
+        if (witnesses != null && isTaint(obj.getObject())) {
+            witnesses.record(from, obj, to, obj);
+        }
     }
 
     public void onFinish() {
-        Set<TaintFlow> taintFlows = collectTaintFlows();
+        listeners.forEach(TaintFlowListener::onFinish);
         solver.getResult().storeResult(getClass().getName(), taintFlows);
+        if (categories.size() > 1) {
+            categoryFlows.forEach((category, flows) ->
+                    logger.info("Detected {} taint flow(s) of category {}",
+                            flows.size(), category.name()));
+        }
+        if (witnesses != null) {
+            logWitnesses();
+        }
     }
 
-    private Set<TaintFlow> collectTaintFlows() {
-        Set<TaintFlow> taintFlows = new TreeSet<>();
-        PointerAnalysisResult result = solver.getResult();
-        CallGraph<CSCallSite, CSMethod> callGraph = result.getCSCallGraph();
-        for (CSMethod csMethod : callGraph.reachableMethods().toList()) {
-            for (CSCallSite csCallSite : callGraph.getCallersOf(csMethod)) {
-                List<Var> args = csCallSite.getCallSite().getInvokeExp().getArgs();
-                for (int i = 0; i < args.size(); i++) {
-                    Sink sink = new Sink(csMethod.getMethod(), i);
-                    if (config.getSinks().contains(sink)) {
-                        for (Obj obj : result.getPointsToSet(args.get(i))) {
-                            if (manager.isTaint(obj)) {
-                                taintFlows.add(new TaintFlow(manager.getSourceCall(obj), csCallSite.getCallSite(), i));
-                            }
-                        }
-                    }
-                }
+    /**
+     * @return taint flows of the category with given name.
+     */
+    public Set<TaintFlow> getTaintFlows(String category) {
+        for (TaintCategory c : categories) {
+            if (c.name().equals(category)) {
+                return Collections.unmodifiableSet(categoryFlows.get(c));
             }
         }
-        return taintFlows;
+        return Set.of();
+    }
+
+    private void logWitnesses() {
+        StringBuilder sb = new StringBuilder("Taint flow witnesses:");
+        for (TaintFlow flow : taintFlows) {
+            Pair<Pointer, CSObj> end = flowEnds.get(flow);
+            sb.append('\n').append(flow).append(':');
+            witnesses.getPath(end.first(), end.second())
+                    .forEach(p -> sb.append("\n  ").append(p));
+        }
+        logger.info(sb);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,144 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.plugin.taint;
+
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.config.ConfigException;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.type.Type;
+import pascal.taie.language.type.TypeSystem;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A category of taint analysis (e.g., SQL injection or XSS), which has
+ * its own configuration and taint objects, so that multiple categories
+ * can be analyzed in one pointer analysis without interfering with
+ * each other.
+ */
+final class TaintCategory {
+
+    private final String name;
+
+    private final TaintConfig config;
+
+    private final TaintManager manager;
+
+    /**
+     * Map from taint objects to their categories, which is shared by
+     * the categories loaded together, and is filled when taint objects
+     * are made.
+     */
+    private final Map<Obj, TaintCategory> taintCategories;
+
+    private TaintCategory(String name, TaintConfig config, TaintManager manager,
+                          Map<Obj, TaintCategory> taintCategories) {
+        this.name = name;
+        this.config = config;
+        this.manager = manager;
+        this.taintCategories = taintCategories;
+    }
+
+    String name() {
+        return name;
+    }
+
+    TaintConfig config() {
+        return config;
+    }
+
+    TaintManager manager() {
+        return manager;
+    }
+
+    /**
+     * Makes a taint object of this category for given source and type.
+     *
+     * @see TaintManager#makeTaint(Invoke, Type)
+     */
+    Obj makeTaint(Invoke source, Type type) {
+        Obj taint = manager.makeTaint(source, type);
+        taintCategories.putIfAbsent(taint, this);
+        return taint;
+    }
+
+    /**
+     * Loads the categories from the config files given by option
+     * "taint-config", separated by ','. Each category is named by
+     * the file name without extension. If option "taint-config-cache"
+     * is given, the configs are precompiled into that directory.
+     *
+     * @throws ConfigException if option "taint-config" is not given.
+     */
+    static List<TaintCategory> load(AnalysisOptions options,
+                                    ClassHierarchy hierarchy,
+                                    TypeSystem typeSystem) {
+        String configs = options.getString("taint-config");
+        if (configs == null) {
+            throw new ConfigException(
+                    "Option \"taint-config\" is required by taint analysis");
+        }
+        String[] paths = configs.split(",");
+        String cacheDir = options.get("taint-config-cache") != null ?
+                options.getString("taint-config-cache") : null;
+        List<TaintCategory> categories = new ArrayList<>(paths.length);
+        Set<String> names = Sets.newSet();
+        Map<Obj, TaintCategory> taintCategories = Maps.newMap();
+        for (String p : paths) {
+            String path = p.strip();
+            String name = Path.of(path).getFileName().toString();
+            int dot = name.lastIndexOf('.');
+            if (dot > 0) {
+                name = name.substring(0, dot);
+            }
+            if (!names.add(name)) {
+                throw new ConfigException("Duplicate taint category: " + name);
+            }
+            TaintConfig config = TaintConfig.readConfig(
+                    path, cacheDir, hierarchy, typeSystem);
+            // taint objects of a single category are named as before
+            TaintManager manager = paths.length == 1 ?
+                    new TaintManager() : new TaintManager(name);
+            categories.add(new TaintCategory(
+                    name, config, manager, taintCategories));
+        }
+        return categories;
+    }
+
+    /**
+     * @return the category of given taint object, or null if the object
+     * is not a taint object.
+     */
+    static TaintCategory of(List<TaintCategory> categories, Obj obj) {
+        return categories.isEmpty() ? null :
+                categories.get(0).taintCategories.get(obj);
+    }
+}
@@ -38,70 +38,265 @@ import pascal.taie.language.classes.ClassHierarchy;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.language.type.Type;
 import pascal.taie.language.type.TypeSystem;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
 import pascal.taie.util.collection.Sets;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * Configuration for taint analysis.
+ * <p>
+ * The entries of the configuration are kept by the signatures of their
+ * methods, and are resolved lazily when the methods are queried, so that
+ * loading a large configuration does not need to look up every method
+ * in the class hierarchy. The entries whose methods are given by
+ * {@link MethodPattern}s are expanded to the matched methods once
+ * when the configuration is loaded.
+ * <p>
+ * The methods that are absent in the class hierarchy are also reported
+ * lazily: when a method of a class is queried for the first time,
+ * the entries of the other methods of the class are checked.
  */
 class TaintConfig {
 
     private static final Logger logger = LogManager.getLogger(TaintConfig.class);
 
     /**
-     * Set of sources.
+     * Unresolved source entry.
      */
-    private final Set<Source> sources;
+    record SourceSpec(String method, String type) {
+
+        @Override
+        public String toString() {
+            return method + "(" + type + ")";
+        }
+    }
+
+    /**
+     * Unresolved sink entry.
+     */
+    record SinkSpec(String method, int index) {
+
+        @Override
+        public String toString() {
+            return method + "/" + index;
+        }
+    }
 
     /**
-     * Set of sinks.
+     * Unresolved sanitizer entry.
      */
-    private final Set<Sink> sinks;
+    record SanitizerSpec(String method, int index) {
+
+        @Override
+        public String toString() {
+            return method + "/" + TaintTransfer.toString(index);
+        }
+    }
 
     /**
-     * Set of taint transfers;
+     * Unresolved taint-transfer entry.
      */
-    private final Set<TaintTransfer> transfers;
+    record TransferSpec(String method, int from, String fromAccess,
+                        int to, String toAccess, String type) {
 
-    private TaintConfig(Set<Source> sources, Set<Sink> sinks,
-                        Set<TaintTransfer> transfers) {
-        this.sources = sources;
-        this.sinks = sinks;
-        this.transfers = transfers;
+        @Override
+        public String toString() {
+            return method + ": " + TaintTransfer.toString(from, fromAccess) +
+                    " -> " + TaintTransfer.toString(to, toAccess) + "(" + type + ")";
+        }
     }
 
+    private final ClassHierarchy hierarchy;
+
+    private final TypeSystem typeSystem;
+
+    /**
+     * Entries as given in the config, whose methods may be patterns.
+     */
+    private final Collection<SourceSpec> sourceEntries;
+
+    private final Collection<SinkSpec> sinkEntries;
+
+    private final Collection<SanitizerSpec> sanitizerEntries;
+
+    private final Collection<TransferSpec> transferEntries;
+
+    /**
+     * Map from method pattern to the matched methods.
+     */
+    private final Map<String, Set<JMethod>> patternMethods = Maps.newMap();
+
+    /**
+     * Map from method signature to the source entries of the method.
+     */
+    private final MultiMap<String, SourceSpec> sourceSpecs = Maps.newMultiMap();
+
+    /**
+     * Map from method signature to the sink entries of the method.
+     */
+    private final MultiMap<String, SinkSpec> sinkSpecs = Maps.newMultiMap();
+
+    /**
+     * Map from method signature to the sanitizer entries of the method.
+     */
+    private final MultiMap<String, SanitizerSpec> sanitizerSpecs = Maps.newMultiMap();
+
+    /**
+     * Map from method signature to the taint-transfer entries of the method.
+     */
+    private final MultiMap<String, TransferSpec> transferSpecs = Maps.newMultiMap();
+
     /**
-     * Reads a taint analysis configuration from file
+     * Map from class name to the signatures of the methods of the class
+     * in the config, which are checked when the class is first queried.
+     */
+    private final MultiMap<String, String> classMethods = Maps.newMultiMap();
+
+    /**
+     * Set of sources, resolved on demand.
+     */
+    private Set<Source> sources;
+
+    /**
+     * Set of sinks, resolved on demand.
+     */
+    private Set<Sink> sinks;
+
+    /**
+     * Set of sanitizers, resolved on demand.
+     */
+    private Set<Sanitizer> sanitizers;
+
+    /**
+     * Set of taint transfers, resolved on demand.
+     */
+    private Set<TaintTransfer> transfers;
+
+    /**
+     * Map from a source method to the types of its taint objects.
+     */
+    private final Map<JMethod, Set<Type>> sourceIndex = Maps.newMap();
+
+    /**
+     * Map from a sink method to the indexes of its sensitive arguments.
+     */
+    private final Map<JMethod, Set<Integer>> sinkIndex = Maps.newMap();
+
+    /**
+     * Map from a sanitizer method to its sanitized indexes.
+     */
+    private final Map<JMethod, Set<Integer>> sanitizerIndex = Maps.newMap();
+
+    /**
+     * Map from a method to the taint transfers caused by it.
+     */
+    private final Map<JMethod, Set<TaintTransfer>> transferIndex = Maps.newMap();
+
+    TaintConfig(Collection<SourceSpec> sources, Collection<SinkSpec> sinks,
+                Collection<SanitizerSpec> sanitizers,
+                Collection<TransferSpec> transfers,
+                ClassHierarchy hierarchy, TypeSystem typeSystem) {
+        this.hierarchy = hierarchy;
+        this.typeSystem = typeSystem;
+        sourceEntries = sources;
+        sinkEntries = sinks;
+        sanitizerEntries = sanitizers;
+        transferEntries = transfers;
+        sources.forEach(s -> index(sourceSpecs, s.method(), s));
+        sinks.forEach(s -> index(sinkSpecs, s.method(), s));
+        sanitizers.forEach(s -> index(sanitizerSpecs, s.method(), s));
+        transfers.forEach(t -> index(transferSpecs, t.method(), t));
+    }
+
+    /**
+     * Adds an entry to the index by the signatures of its methods.
+     */
+    private <S> void index(MultiMap<String, S> specs, String method, S spec) {
+        if (MethodPattern.isPattern(method)) {
+            patternMethods.computeIfAbsent(method, this::resolvePattern)
+                    .forEach(m -> specs.put(m.getSignature(), spec));
+        } else {
+            specs.put(method, spec);
+            // method signature is of the form "<class: type name(params)>"
+            int colon = method.indexOf(':');
+            if (method.startsWith("<") && colon > 0) {
+                classMethods.put(method.substring(1, colon), method);
+            }
+        }
+    }
+
+    private Set<JMethod> resolvePattern(String pattern) {
+        Set<JMethod> methods = MethodPattern.parse(pattern).resolve(hierarchy);
+        if (methods.isEmpty()) {
+            logger.warn("Cannot find methods matching pattern '{}'", pattern);
+        }
+        return methods;
+    }
+
+    /**
+     * Reads a taint analysis configuration from file. If a cache directory
+     * is given, the configuration is loaded from its precompiled binary form
+     * in the directory when the form is up-to-date; otherwise, the config
+     * file is parsed, and then compiled into the directory. In both cases,
+     * the methods in the config are not looked up until they are queried.
      *
      * @param path       the path to the config file
+     * @param cacheDir   the directory of precompiled configs, may be null
      * @param hierarchy  the class hierarchy
      * @param typeSystem the type manager
      * @return the TaintConfig object
      * @throws ConfigException if failed to load the config file
      */
-    static TaintConfig readConfig(
-            String path, ClassHierarchy hierarchy, TypeSystem typeSystem) {
+    static TaintConfig readConfig(String path, String cacheDir,
+                                  ClassHierarchy hierarchy, TypeSystem typeSystem) {
         File file = new File(path);
+        Path cache = cacheDir != null ?
+                TaintConfigCache.getCacheFile(file, Path.of(cacheDir)) : null;
+        if (cache != null) {
+            TaintConfig config = TaintConfigCache.load(
+                    file, cache, hierarchy, typeSystem);
+            if (config != null) {
+                logger.info("Loaded precompiled taint config {}", cache);
+                return config;
+            }
+        }
         ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
         SimpleModule module = new SimpleModule();
         module.addDeserializer(TaintConfig.class,
                 new Deserializer(hierarchy, typeSystem));
         mapper.registerModule(module);
+        TaintConfig config;
         try {
-            return mapper.readValue(file, TaintConfig.class);
+            config = mapper.readValue(file, TaintConfig.class);
         } catch (IOException e) {
             throw new ConfigException("Failed to read taint analysis config file " + file, e);
         }
+        if (cache != null) {
+            TaintConfigCache.save(file, cache, config);
+        }
+        return config;
     }
 
     /**
      * @return sources in the configuration.
      */
     Set<Source> getSources() {
+        if (sources == null) {
+            sources = resolveAll(sourceSpecs, "source",
+                    (m, s) -> new Source(m, typeSystem.getType(s.type())));
+        }
         return sources;
     }
 
@@ -109,32 +304,180 @@ class TaintConfig {
      * @return sinks in the configuration.
      */
     Set<Sink> getSinks() {
+        if (sinks == null) {
+            sinks = resolveAll(sinkSpecs, "sink",
+                    (m, s) -> new Sink(m, s.index()));
+        }
         return sinks;
     }
 
+    /**
+     * @return sanitizers in the configuration.
+     */
+    Set<Sanitizer> getSanitizers() {
+        if (sanitizers == null) {
+            sanitizers = resolveAll(sanitizerSpecs, "sanitizer",
+                    (m, s) -> new Sanitizer(m, s.index()));
+        }
+        return sanitizers;
+    }
+
     /**
      * @return taint transfers in the configuration.
      */
     Set<TaintTransfer> getTransfers() {
+        if (transfers == null) {
+            transfers = resolveAll(transferSpecs, "taint-transfer", this::toTransfer);
+        }
         return transfers;
     }
 
+    /**
+     * @return unresolved source entries in the configuration.
+     */
+    Collection<SourceSpec> getSourceSpecs() {
+        return sourceEntries;
+    }
+
+    /**
+     * @return unresolved sink entries in the configuration.
+     */
+    Collection<SinkSpec> getSinkSpecs() {
+        return sinkEntries;
+    }
+
+    /**
+     * @return unresolved sanitizer entries in the configuration.
+     */
+    Collection<SanitizerSpec> getSanitizerSpecs() {
+        return sanitizerEntries;
+    }
+
+    /**
+     * @return unresolved taint-transfer entries in the configuration.
+     */
+    Collection<TransferSpec> getTransferSpecs() {
+        return transferEntries;
+    }
+
+    /**
+     * @return types of the taint objects produced by given method,
+     * or an empty set if the method is not a source.
+     */
+    Set<Type> getSourceTypes(JMethod method) {
+        return sourceIndex.computeIfAbsent(method, m ->
+                resolve(m, sourceSpecs, s -> typeSystem.getType(s.type())));
+    }
+
+    /**
+     * @return indexes of the sensitive arguments of given method,
+     * or an empty set if the method is not a sink.
+     */
+    Set<Integer> getSinkIndexes(JMethod method) {
+        return sinkIndex.computeIfAbsent(method, m ->
+                resolve(m, sinkSpecs, SinkSpec::index));
+    }
+
+    /**
+     * @return sanitized indexes of given method (see {@link TaintTransfer}
+     * for the special indexes), or an empty set if the method
+     * is not a sanitizer.
+     */
+    Set<Integer> getSanitizedIndexes(JMethod method) {
+        return sanitizerIndex.computeIfAbsent(method, m ->
+                resolve(m, sanitizerSpecs, SanitizerSpec::index));
+    }
+
+    /**
+     * @return taint transfers caused by given method.
+     */
+    Set<TaintTransfer> getTransfers(JMethod method) {
+        return transferIndex.computeIfAbsent(method, m ->
+                resolve(m, transferSpecs, s -> toTransfer(m, s)));
+    }
+
+    private TaintTransfer toTransfer(JMethod method, TransferSpec spec) {
+        return new TaintTransfer(method, spec.from(), spec.fromAccess(),
+                spec.to(), spec.toAccess(), typeSystem.getType(spec.type()));
+    }
+
+    /**
+     * Resolves the entries of given method.
+     */
+    private <S, T> Set<T> resolve(
+            JMethod method, MultiMap<String, S> specs,
+            Function<S, T> resolver) {
+        reportAbsentMethods(method.getDeclaringClass().getName());
+        Set<S> methodSpecs = specs.get(method.getSignature());
+        if (methodSpecs.isEmpty()) {
+            return Set.of();
+        }
+        Set<T> result = Sets.newHybridSet();
+        methodSpecs.forEach(s -> result.add(resolver.apply(s)));
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Reports the methods of given class in the config that are absent
+     * in the class hierarchy. Each class is checked only once, as its
+     * entries are removed from {@link #classMethods} after the check.
+     */
+    private void reportAbsentMethods(String className) {
+        Set<String> methodSigs = classMethods.get(className);
+        if (!methodSigs.isEmpty()) {
+            for (String methodSig : methodSigs) {
+                if (hierarchy.getMethod(methodSig) == null) {
+                    logger.warn("Cannot find method '{}' of taint config", methodSig);
+                }
+            }
+            classMethods.removeAll(className);
+        }
+    }
+
+    /**
+     * Resolves all entries of given kind.
+     */
+    private <S, T> Set<T> resolveAll(
+            MultiMap<String, S> specs, String kind,
+            BiFunction<JMethod, S, T> resolver) {
+        Set<T> result = Sets.newSet(specs.size());
+        for (String methodSig : specs.keySet()) {
+            JMethod method = hierarchy.getMethod(methodSig);
+            if (method != null) {
+                // if the method (given in config file) is absent in
+                // the class hierarchy, just ignore it.
+                specs.get(methodSig).forEach(s ->
+                        result.add(resolver.apply(method, s)));
+            } else {
+                logger.warn("Cannot find {} method '{}'", kind, methodSig);
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
     @Override
     public String toString() {
+        // prints the unresolved entries, so that logging the config
+        // does not resolve all of them
         StringBuilder sb = new StringBuilder("TaintConfig:");
-        if (!sources.isEmpty()) {
+        if (!sourceEntries.isEmpty()) {
             sb.append("\nsources:\n");
-            sources.forEach(source ->
+            sourceEntries.forEach(source ->
                     sb.append("  ").append(source).append("\n"));
         }
-        if (!sinks.isEmpty()) {
+        if (!sinkEntries.isEmpty()) {
             sb.append("\nsinks:\n");
-            sinks.forEach(sink ->
+            sinkEntries.forEach(sink ->
                     sb.append("  ").append(sink).append("\n"));
         }
-        if (!transfers.isEmpty()) {
+        if (!sanitizerEntries.isEmpty()) {
+            sb.append("\nsanitizers:\n");
+            sanitizerEntries.forEach(sanitizer ->
+                    sb.append("  ").append(sanitizer).append("\n"));
+        }
+        if (!transferEntries.isEmpty()) {
             sb.append("\ntransfers:\n");
-            transfers.forEach(transfer ->
+            transferEntries.forEach(transfer ->
                     sb.append("  ").append(transfer).append("\n"));
         }
         return sb.toString();
@@ -159,100 +502,107 @@ class TaintConfig {
                 throws IOException {
             ObjectCodec oc = p.getCodec();
             JsonNode node = oc.readTree(p);
-            Set<Source> sources = deserializeSources(node.get("sources"));
-            Set<Sink> sinks = deserializeSinks(node.get("sinks"));
-            Set<TaintTransfer> transfers = deserializeTransfers(node.get("transfers"));
-            return new TaintConfig(sources, sinks, transfers);
+            List<SourceSpec> sources = deserializeSources(node.get("sources"));
+            List<SinkSpec> sinks = deserializeSinks(node.get("sinks"));
+            List<SanitizerSpec> sanitizers = deserializeSanitizers(node.get("sanitizers"));
+            List<TransferSpec> transfers = deserializeTransfers(node.get("transfers"));
+            return new TaintConfig(sources, sinks, sanitizers, transfers,
+                    hierarchy, typeSystem);
         }
 
         /**
          * Deserializes a {@link JsonNode} (assume it is an {@link ArrayNode})
-         * to a set of {@link Source}.
+         * to a list of {@link SourceSpec}.
          *
          * @param node the node to be deserialized
-         * @return set of deserialized {@link Source}
+         * @return list of deserialized {@link SourceSpec}
          */
-        private Set<Source> deserializeSources(JsonNode node) {
+        private List<SourceSpec> deserializeSources(JsonNode node) {
             if (node instanceof ArrayNode arrayNode) {
-                Set<Source> sources = Sets.newSet(arrayNode.size());
+                List<SourceSpec> sources = new ArrayList<>(arrayNode.size());
                 for (JsonNode elem : arrayNode) {
-                    String methodSig = elem.get("method").asText();
-                    JMethod method = hierarchy.getMethod(methodSig);
-                    if (method != null) {
-                        // if the method (given in config file) is absent in
-                        // the class hierarchy, just ignore it.
-                        Type type = typeSystem.getType(
-                                elem.get("type").asText());
-                        sources.add(new Source(method, type));
-                    } else {
-                        logger.warn("Cannot find source method '{}'", methodSig);
-                    }
+                    sources.add(new SourceSpec(
+                            elem.get("method").asText(),
+                            elem.get("type").asText()));
                 }
-                return Collections.unmodifiableSet(sources);
+                return sources;
             } else {
-                // if node is not an instance of ArrayNode, just return an empty set.
-                return Set.of();
+                // if node is not an instance of ArrayNode, just return an empty list.
+                return List.of();
             }
         }
 
         /**
          * Deserializes a {@link JsonNode} (assume it is an {@link ArrayNode})
-         * to a set of {@link Sink}.
+         * to a list of {@link SinkSpec}.
          *
          * @param node the node to be deserialized
-         * @return set of deserialized {@link Sink}
+         * @return list of deserialized {@link SinkSpec}
          */
-        private Set<Sink> deserializeSinks(JsonNode node) {
+        private List<SinkSpec> deserializeSinks(JsonNode node) {
             if (node instanceof ArrayNode arrayNode) {
-                Set<Sink> sinks = Sets.newSet(arrayNode.size());
+                List<SinkSpec> sinks = new ArrayList<>(arrayNode.size());
                 for (JsonNode elem : arrayNode) {
-                    String methodSig = elem.get("method").asText();
-                    JMethod method = hierarchy.getMethod(methodSig);
-                    if (method != null) {
-                        // if the method (given in config file) is absent in
-                        // the class hierarchy, just ignore it.
-                        int index = elem.get("index").asInt();
-                        sinks.add(new Sink(method, index));
-                    } else {
-                        logger.warn("Cannot find sink method '{}'", methodSig);
-                    }
+                    sinks.add(new SinkSpec(
+                            elem.get("method").asText(),
+                            elem.get("index").asInt()));
                 }
-                return Collections.unmodifiableSet(sinks);
+                return sinks;
             } else {
-                // if node is not an instance of ArrayNode, just return an empty set.
-                return Set.of();
+                // if node is not an instance of ArrayNode, just return an empty list.
+                return List.of();
             }
         }
 
         /**
          * Deserializes a {@link JsonNode} (assume it is an {@link ArrayNode})
-         * to a set of {@link TaintTransfer}.
+         * to a list of {@link SanitizerSpec}.
          *
          * @param node the node to be deserialized
-         * @return set of deserialized {@link TaintTransfer}
+         * @return list of deserialized {@link SanitizerSpec}
          */
-        private Set<TaintTransfer> deserializeTransfers(JsonNode node) {
+        private List<SanitizerSpec> deserializeSanitizers(JsonNode node) {
             if (node instanceof ArrayNode arrayNode) {
-                Set<TaintTransfer> transfers = Sets.newSet(arrayNode.size());
+                List<SanitizerSpec> sanitizers = new ArrayList<>(arrayNode.size());
                 for (JsonNode elem : arrayNode) {
-                    String methodSig = elem.get("method").asText();
-                    JMethod method = hierarchy.getMethod(methodSig);
-                    if (method != null) {
-                        // if the method (given in config file) is absent in
-                        // the class hierarchy, just ignore it.
-                        int from = TaintTransfer.toInt(elem.get("from").asText());
-                        int to = TaintTransfer.toInt(elem.get("to").asText());
-                        Type type = typeSystem.getType(
-                                elem.get("type").asText());
-                        transfers.add(new TaintTransfer(method, from, to, type));
-                    } else {
-                        logger.warn("Cannot find taint-transfer method '{}'", methodSig);
+                    String index = elem.get("index").asText();
+                    if (TaintTransfer.toAccess(index) != null) {
+                        throw new ConfigException("Sanitized index cannot have access: " + index);
                     }
+                    sanitizers.add(new SanitizerSpec(
+                            elem.get("method").asText(),
+                            TaintTransfer.toInt(index)));
+                }
+                return sanitizers;
+            } else {
+                // if node is not an instance of ArrayNode, just return an empty list.
+                return List.of();
+            }
+        }
+
+        /**
+         * Deserializes a {@link JsonNode} (assume it is an {@link ArrayNode})
+         * to a list of {@link TransferSpec}.
+         *
+         * @param node the node to be deserialized
+         * @return list of deserialized {@link TransferSpec}
+         */
+        private List<TransferSpec> deserializeTransfers(JsonNode node) {
+            if (node instanceof ArrayNode arrayNode) {
+                List<TransferSpec> transfers = new ArrayList<>(arrayNode.size());
+                for (JsonNode elem : arrayNode) {
+                    String from = elem.get("from").asText();
+                    String to = elem.get("to").asText();
+                    transfers.add(new TransferSpec(
+                            elem.get("method").asText(),
+                            TaintTransfer.toInt(from), TaintTransfer.toAccess(from),
+                            TaintTransfer.toInt(to), TaintTransfer.toAccess(to),
+                            elem.get("type").asText()));
                 }
-                return Collections.unmodifiableSet(transfers);
+                return transfers;
             } else {
-                // if node is not an instance of ArrayNode, just return an empty set.
-                return Set.of();
+                // if node is not an instance of ArrayNode, just return an empty list.
+                return List.of();
             }
         }
     }
@@ -0,0 +1,270 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.plugin.taint;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.pta.plugin.taint.TaintConfig.SanitizerSpec;
+import pascal.taie.analysis.pta.plugin.taint.TaintConfig.SinkSpec;
+import pascal.taie.analysis.pta.plugin.taint.TaintConfig.SourceSpec;
+import pascal.taie.analysis.pta.plugin.taint.TaintConfig.TransferSpec;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.type.TypeSystem;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Precompiled binary form of {@link TaintConfig}.
+ * <p>
+ * The binary form consists of a header, which identifies the config file
+ * it is compiled from by the length, modification time and CRC-32 checksum
+ * of the file,
+ * a table of the interned strings (method signatures and type names),
+ * and the entries whose strings are represented by their ids in the table.
+ * It is memory-mapped when loading, and the methods of the entries are
+ * resolved lazily by {@link TaintConfig}. When the config file changes,
+ * the binary form becomes stale, and it is discarded and recompiled.
+ * The checksum is computed (by reading the whole config file) only if
+ * the length matches but the modification time does not.
+ */
+final class TaintConfigCache {
+
+    private static final Logger logger = LogManager.getLogger(TaintConfigCache.class);
+
+    private static final int MAGIC = 0x54434647; // "TCFG"
+
+    /**
+     * Version of the binary form, which should be increased when the form
+     * (or the semantics of the config) changes.
+     */
+    private static final int VERSION = 4;
+
+    private static final String SUFFIX = ".bin";
+
+    /**
+     * Id of absent (null) strings.
+     */
+    private static final int NULL_ID = -1;
+
+    private TaintConfigCache() {
+    }
+
+    /**
+     * @return the path of the binary form of given config file
+     * in given cache directory. The path is keyed by the hash of the
+     * canonical path of the config file, so that the config files
+     * with the same name in different directories do not collide.
+     */
+    static Path getCacheFile(File configFile, Path cacheDir) {
+        String path;
+        try {
+            path = configFile.getCanonicalPath();
+        } catch (IOException e) {
+            path = configFile.getAbsolutePath();
+        }
+        return cacheDir.resolve(configFile.getName() + "-" +
+                Integer.toHexString(path.hashCode()) + SUFFIX);
+    }
+
+    /**
+     * Loads the binary form of a config file.
+     *
+     * @return the loaded config, or null if the binary form is absent,
+     * stale or broken.
+     */
+    static TaintConfig load(File configFile, Path cache,
+                            ClassHierarchy hierarchy, TypeSystem typeSystem) {
+        if (!Files.isRegularFile(cache)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            long length = buffer.getLong();
+            long lastModified = buffer.getLong();
+            long checksum = buffer.getLong();
+            // reads the config file only if it may have been modified
+            if (magic != MAGIC || version != VERSION ||
+                    length != configFile.length() ||
+                    (lastModified != configFile.lastModified() &&
+                            checksum != checksum(configFile))) {
+                logger.info("Precompiled taint config {} is stale", cache);
+                return null;
+            }
+            String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; ++i) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            int nSources = buffer.getInt();
+            List<SourceSpec> sources = new ArrayList<>(nSources);
+            for (int i = 0; i < nSources; ++i) {
+                sources.add(new SourceSpec(
+                        strings[buffer.getInt()], strings[buffer.getInt()]));
+            }
+            int nSinks = buffer.getInt();
+            List<SinkSpec> sinks = new ArrayList<>(nSinks);
+            for (int i = 0; i < nSinks; ++i) {
+                sinks.add(new SinkSpec(strings[buffer.getInt()], buffer.getInt()));
+            }
+            int nSanitizers = buffer.getInt();
+            List<SanitizerSpec> sanitizers = new ArrayList<>(nSanitizers);
+            for (int i = 0; i < nSanitizers; ++i) {
+                sanitizers.add(new SanitizerSpec(
+                        strings[buffer.getInt()], buffer.getInt()));
+            }
+            int nTransfers = buffer.getInt();
+            List<TransferSpec> transfers = new ArrayList<>(nTransfers);
+            for (int i = 0; i < nTransfers; ++i) {
+                transfers.add(new TransferSpec(strings[buffer.getInt()],
+                        buffer.getInt(), getString(strings, buffer.getInt()),
+                        buffer.getInt(), getString(strings, buffer.getInt()),
+                        strings[buffer.getInt()]));
+            }
+            return new TaintConfig(sources, sinks, sanitizers, transfers,
+                    hierarchy, typeSystem);
+        } catch (IOException | BufferUnderflowException |
+                 ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+            logger.warn("Failed to load precompiled taint config {}: {}", cache, e);
+            return null;
+        }
+    }
+
+    /**
+     * Compiles given config into binary form. Failing to save the binary form
+     * does not affect the analysis, thus it is reported as a warning.
+     */
+    static void save(File configFile, Path cache, TaintConfig config) {
+        // ids of the strings are their positions in the table
+        Map<String, Integer> ids = new LinkedHashMap<>();
+        config.getSourceSpecs().forEach(s -> {
+            intern(ids, s.method());
+            intern(ids, s.type());
+        });
+        config.getSinkSpecs().forEach(s -> intern(ids, s.method()));
+        config.getSanitizerSpecs().forEach(s -> intern(ids, s.method()));
+        config.getTransferSpecs().forEach(t -> {
+            intern(ids, t.method());
+            intern(ids, t.fromAccess());
+            intern(ids, t.toAccess());
+            intern(ids, t.type());
+        });
+        Path dir = cache.toAbsolutePath().getParent();
+        Path temp = null;
+        try {
+            Files.createDirectories(dir);
+            // writes to a temporary file first, so that the concurrent
+            // analyses never see partially-written binary form
+            temp = Files.createTempFile(dir, cache.getFileName().toString(), null);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(configFile.length());
+                out.writeLong(configFile.lastModified());
+                out.writeLong(checksum(configFile));
+                out.writeInt(ids.size());
+                for (String s : ids.keySet()) {
+                    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                out.writeInt(config.getSourceSpecs().size());
+                for (SourceSpec s : config.getSourceSpecs()) {
+                    out.writeInt(ids.get(s.method()));
+                    out.writeInt(ids.get(s.type()));
+                }
+                out.writeInt(config.getSinkSpecs().size());
+                for (SinkSpec s : config.getSinkSpecs()) {
+                    out.writeInt(ids.get(s.method()));
+                    out.writeInt(s.index());
+                }
+                out.writeInt(config.getSanitizerSpecs().size());
+                for (SanitizerSpec s : config.getSanitizerSpecs()) {
+                    out.writeInt(ids.get(s.method()));
+                    out.writeInt(s.index());
+                }
+                out.writeInt(config.getTransferSpecs().size());
+                for (TransferSpec t : config.getTransferSpecs()) {
+                    out.writeInt(ids.get(t.method()));
+                    out.writeInt(t.from());
+                    out.writeInt(getId(ids, t.fromAccess()));
+                    out.writeInt(t.to());
+                    out.writeInt(getId(ids, t.toAccess()));
+                    out.writeInt(ids.get(t.type()));
+                }
+            }
+            Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Compiled taint config {} to {}", configFile, cache);
+        } catch (IOException e) {
+            logger.warn("Failed to save precompiled taint config {}: {}", cache, e);
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static void intern(Map<String, Integer> ids, String s) {
+        if (s != null) {
+            ids.putIfAbsent(s, ids.size());
+        }
+    }
+
+    private static int getId(Map<String, Integer> ids, String s) {
+        return s != null ? ids.get(s) : NULL_ID;
+    }
+
+    private static String getString(String[] strings, int id) {
+        return id != NULL_ID ? strings[id] : null;
+    }
+
+    private static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+        return crc.getValue();
+    }
+}
@@ -39,6 +39,23 @@ class TaintManager {
 
     private final TwoKeyMap<Invoke, Type, Obj> taints = Maps.newTwoKeyMap();
 
+    /**
+     * Description of the taint objects of this manager.
+     */
+    private final String desc;
+
+    TaintManager() {
+        this.desc = TAINT_DESC;
+    }
+
+    /**
+     * Creates a manager whose taint objects are distinguished from
+     * the ones of other categories.
+     */
+    TaintManager(String category) {
+        this.desc = TAINT_DESC + ":" + category;
+    }
+
     /**
      * Makes a taint object for given source and type.
      *
@@ -49,15 +66,16 @@ class TaintManager {
     Obj
     makeTaint(Invoke source, Type type) {
         return taints.computeIfAbsent(source, type,
-                (s, t) -> new MockObj(TAINT_DESC, s, t));
+                (s, t) -> new MockObj(desc, s, t));
     }
 
     /**
-     * @return true if given obj represents a taint object, otherwise false.
+     * @return true if given obj represents a taint object of this manager,
+     * otherwise false.
      */
     boolean isTaint(Obj obj) {
         return obj instanceof MockObj &&
-                ((MockObj) obj).getDescription().equals(TAINT_DESC);
+                ((MockObj) obj).getDescription().equals(desc);
     }
 
     /**
@@ -22,7 +22,10 @@
 
 package pascal.taie.analysis.pta.plugin.taint;
 
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ClassType;
 import pascal.taie.language.type.Type;
 
 /**
@@ -31,11 +34,21 @@ import pascal.taie.language.type.Type;
  * <ul>
  *     <li>method: the method that causes taint transfer
  *     <li>from: the index of "from" variable
+ *     <li>fromAccess: the access of "from" variable, or null if taint
+ *     objects are transferred from the variable itself
  *     <li>to: the index of "to" variable
+ *     <li>toAccess: the access of "to" variable, or null if taint
+ *     objects are transferred to the variable itself
  *     <li>type: the type of the transferred taint object
  * </ul>
+ * An access is either {@link #ELEMENTS}, which represents the elements
+ * of the arrays (or containers, e.g., collections) pointed to by the
+ * variable, or a field name, which represents the field of the objects
+ * pointed to by the variable. In config files, accesses follow
+ * the indexes, e.g., "base[*]" and "0.value".
  */
-record TaintTransfer(JMethod method, int from, int to, Type type) {
+record TaintTransfer(JMethod method, int from, String fromAccess,
+                     int to, String toAccess, Type type) {
 
     /**
      * Special number representing the base variable.
@@ -58,27 +71,84 @@ record TaintTransfer(JMethod method, int from, int to, Type type) {
      */
     private static final String RESULT_STR = "result";
 
+    /**
+     * Access representing the elements of arrays or containers.
+     */
+    static final String ELEMENTS = "[*]";
+
     @Override
     public String toString() {
-        return method + ": " + toString(from) + " -> " + toString(to) +
-                "(" + type + ")";
+        return method + ": " + toString(from, fromAccess) + " -> " +
+                toString(to, toAccess) + "(" + type + ")";
     }
 
     /**
-     * Coverts string to index.
+     * Coverts string to index. The access in the string, if any,
+     * is ignored.
      */
     static int toInt(String s) {
-        return switch (s.toLowerCase()) {
+        String index = s;
+        if (s.endsWith(ELEMENTS)) {
+            index = s.substring(0, s.length() - ELEMENTS.length());
+        } else if (s.indexOf('.') >= 0) {
+            index = s.substring(0, s.indexOf('.'));
+        }
+        return switch (index.toLowerCase()) {
             case BASE_STR -> BASE;
             case RESULT_STR -> RESULT;
-            default -> Integer.parseInt(s);
+            default -> Integer.parseInt(index);
         };
     }
 
+    /**
+     * Converts string to access.
+     *
+     * @return the access in the string, or null if the string
+     * has no access.
+     */
+    static String toAccess(String s) {
+        if (s.endsWith(ELEMENTS)) {
+            return ELEMENTS;
+        } else if (s.indexOf('.') >= 0) {
+            return s.substring(s.indexOf('.') + 1);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Converts index and access to string.
+     */
+    static String toString(int index, String access) {
+        if (access == null) {
+            return toString(index);
+        } else if (access.equals(ELEMENTS)) {
+            return toString(index) + ELEMENTS;
+        } else {
+            return toString(index) + "." + access;
+        }
+    }
+
+    /**
+     * @return the field with given name in the class of given type
+     * or its superclasses, or null if such field is absent.
+     */
+    static JField getField(Type type, String name) {
+        if (type instanceof ClassType classType) {
+            for (JClass c = classType.getJClass(); c != null; c = c.getSuperClass()) {
+                JField field = c.getDeclaredField(name);
+                if (field != null) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * Converts index to string.
      */
-    private static String toString(int index) {
+    static String toString(int index) {
         return switch (index) {
             case BASE -> BASE_STR;
             case RESULT -> RESULT_STR;
@@ -0,0 +1,230 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.plugin.taint;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.cs.element.Pointer;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records how taint objects arrive at pointers, so that a witness path
+ * can be reconstructed for each taint flow after solving.
+ * <p>
+ * Each (pointer, taint object) pair is a node identified by an int, and
+ * only the first arrival of the object at the pointer is recorded, as the
+ * node of its predecessor pair in a parent-pointer table. As a predecessor
+ * always holds the object before its successors, following the parents
+ * from a node leads back to the source without cycles. Thus a witness path
+ * is the path along which the object arrived first, which is not
+ * necessarily the shortest one.
+ * <p>
+ * The nodes are kept in int arrays indexed by node, and are looked up
+ * by an open-addressing table of node ids. The table holds at most
+ * a given number of nodes, and the arrivals beyond that are not recorded.
+ * Pointers and objects are given ids only when their nodes are added,
+ * so that the memory usage is bounded by the limit.
+ */
+class TaintWitnesses {
+
+    private static final Logger logger = LogManager.getLogger(TaintWitnesses.class);
+
+    private static final int NO_PARENT = -1;
+
+    /**
+     * Marks an empty slot of {@link #slots}.
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * Maximum number of nodes.
+     */
+    private final int limit;
+
+    private final Map<Pointer, Integer> pointerIds = Maps.newMap();
+
+    private final List<Pointer> pointers = new ArrayList<>();
+
+    private final Map<CSObj, Integer> objIds = Maps.newMap();
+
+    /**
+     * Open-addressing table of nodes, keyed by (pointer id, object id).
+     * The capacity is a power of two, and is kept at least twice
+     * the number of nodes.
+     */
+    private int[] slots = newSlots(32);
+
+    /**
+     * Pointer id of each node.
+     */
+    private int[] nodePointers = new int[16];
+
+    /**
+     * Object id of each node.
+     */
+    private int[] nodeObjs = new int[16];
+
+    /**
+     * Parent of each node, or {@link #NO_PARENT}.
+     */
+    private int[] parents = new int[16];
+
+    private int size = 0;
+
+    TaintWitnesses(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Records that taint object fromObj of pointer from arrives at
+     * pointer to as toObj (which differs from fromObj if the taint
+     * is transferred).
+     */
+    void record(Pointer from, CSObj fromObj, Pointer to, CSObj toObj) {
+        if (isFull() || getNode(to, toObj) != NO_PARENT) {
+            return;
+        }
+        int parent = getNode(from, fromObj);
+        if (parent == NO_PARENT) {
+            // the taint object arrived at from in an unrecorded way,
+            // e.g., it is produced by a source call
+            parent = addNode(from, fromObj, NO_PARENT);
+            if (isFull()) {
+                return;
+            }
+        }
+        addNode(to, toObj, parent);
+    }
+
+    private boolean isFull() {
+        if (size >= limit) {
+            if (size == limit) {
+                logger.warn("Taint witness table is full ({} entries)," +
+                        " further arrivals are not recorded", limit);
+                ++size; // warn only once
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the node of given pair, or {@link #NO_PARENT} if the pair
+     * has no node. Does not give ids to the pointer or the object.
+     */
+    private int getNode(Pointer pointer, CSObj obj) {
+        Integer pointerId = pointerIds.get(pointer);
+        Integer objId = objIds.get(obj);
+        if (pointerId == null || objId == null) {
+            return NO_PARENT;
+        }
+        int mask = slots.length - 1;
+        for (int i = hash(pointerId, objId) & mask; ; i = (i + 1) & mask) {
+            int node = slots[i];
+            if (node == EMPTY) {
+                return NO_PARENT;
+            }
+            if (nodePointers[node] == pointerId && nodeObjs[node] == objId) {
+                return node;
+            }
+        }
+    }
+
+    /**
+     * Adds a node for a pair which does not have a node yet.
+     */
+    private int addNode(Pointer pointer, CSObj obj, int parent) {
+        if (size == parents.length) {
+            int capacity = (int) Math.min((long) size * 2, limit);
+            parents = Arrays.copyOf(parents, capacity);
+            nodePointers = Arrays.copyOf(nodePointers, capacity);
+            nodeObjs = Arrays.copyOf(nodeObjs, capacity);
+        }
+        int node = size++;
+        parents[node] = parent;
+        nodePointers[node] = pointerIds.computeIfAbsent(pointer, p -> {
+            pointers.add(p);
+            return pointers.size() - 1;
+        });
+        nodeObjs[node] = objIds.computeIfAbsent(obj, o -> objIds.size());
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        } else {
+            insert(node);
+        }
+        return node;
+    }
+
+    private void insert(int node) {
+        int mask = slots.length - 1;
+        int i = hash(nodePointers[node], nodeObjs[node]) & mask;
+        while (slots[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = node;
+    }
+
+    private void rehash(int capacity) {
+        slots = newSlots(capacity);
+        for (int node = 0; node < size; ++node) {
+            insert(node);
+        }
+    }
+
+    private static int[] newSlots(int capacity) {
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        return slots;
+    }
+
+    private static int hash(int pointerId, int objId) {
+        int h = pointerId * 0x9E3779B9 + objId;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the pointers from the source to given pointer that
+     * taint object obj passes through on its first arrival, or a list
+     * containing only given pointer if the arrival of obj is not recorded.
+     */
+    List<Pointer> getPath(Pointer pointer, CSObj obj) {
+        List<Pointer> path = new ArrayList<>();
+        int node = getNode(pointer, obj);
+        if (node == NO_PARENT) {
+            path.add(pointer);
+        } else {
+            for (int n = node; n != NO_PARENT; n = parents[n]) {
+                path.add(pointers.get(nodePointers[n]));
+            }
+            Collections.reverse(path);
+        }
+        return path;
+    }
+}
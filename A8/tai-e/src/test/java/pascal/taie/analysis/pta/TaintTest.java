@@ -24,6 +24,14 @@ package pascal.taie.analysis.pta;
 
 import org.junit.Test;
 import pascal.taie.analysis.Tests;
+import pascal.taie.config.ConfigException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
 
 public class TaintTest {
 
@@ -35,6 +43,117 @@ public class TaintTest {
                 "taint-config:src/test/resources/pta/taint/taint-config.yml");
     }
 
+    @Test
+    public void testMultipleCategories() {
+        // the second category has no transfer for concat(), and its taint
+        // objects do not flow through the transfer edges of the first one,
+        // thus the detected flows are the ones of the first category
+        Tests.testCSPTA(DIR, "ArgToResult",
+                "taint-config:src/test/resources/pta/taint/taint-config.yml," +
+                        "src/test/resources/pta/taint/simple-config.yml");
+    }
+
+    @Test
+    public void testConfigCache() throws IOException {
+        Path cacheDir = Files.createTempDirectory("taint-config-cache");
+        try {
+            // the first run compiles the config into the cache directory,
+            // and the second run loads the precompiled config
+            for (int i = 0; i < 2; ++i) {
+                Tests.testCSPTA(DIR, "ArgToResult",
+                        "taint-config:src/test/resources/pta/taint/taint-config.yml",
+                        "taint-config-cache:" + cacheDir);
+            }
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                assertEquals(1, files.count());
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(cacheDir);
+        }
+    }
+
+    @Test
+    public void testSanitizer() {
+        Tests.testCSPTA(DIR, "Sanitize",
+                "taint-config:src/test/resources/pta/taint/sanitizer-config.yml");
+    }
+
+    @Test
+    public void testPatternSink() {
+        Tests.testCSPTA(DIR, "PatternSink",
+                "taint-config:src/test/resources/pta/taint/pattern-config.yml");
+    }
+
+    @Test
+    public void testElementTransfer() {
+        Tests.testCSPTA(DIR, "ElementTransfer",
+                "taint-config:src/test/resources/pta/taint/element-config.yml");
+    }
+
+    @Test
+    public void testFlowLimit() {
+        // ArgToResult has only one taint flow, which is still detected
+        // when the analysis stops early at the first flow
+        Tests.testCSPTA(DIR, "ArgToResult",
+                "taint-config:src/test/resources/pta/taint/taint-config.yml",
+                "taint-flow-limit:1");
+    }
+
+    @Test
+    public void testFlowStream() throws IOException {
+        Path stream = Files.createTempFile("Sanitize", ".jsonl");
+        try {
+            Tests.testCSPTA(DIR, "Sanitize",
+                    "taint-config:src/test/resources/pta/taint/sanitizer-config.yml",
+                    "taint-flow-stream:" + stream);
+            // one line per detected taint flow
+            assertEquals(2, Files.readAllLines(stream).size());
+        } finally {
+            Files.deleteIfExists(stream);
+        }
+    }
+
+    @Test
+    public void testSparseEngine() {
+        // the sparse engine detects the same flows as the pointer analysis
+        // on the programs without imprecision of CHA or field-based heap
+        Tests.testCSPTA(DIR, "Sanitize",
+                "taint-config:src/test/resources/pta/taint/sanitizer-config.yml",
+                "taint-engine:sparse");
+        Tests.testCSPTA(DIR, "ArgToResult",
+                "taint-config:src/test/resources/pta/taint/taint-config.yml",
+                "taint-engine:sparse");
+    }
+
+    @Test(expected = ConfigException.class)
+    public void testSparseEngineWithFlowLimit() {
+        // the sparse engine cannot stop at the first flows
+        Tests.testCSPTA(DIR, "ArgToResult",
+                "taint-config:src/test/resources/pta/taint/taint-config.yml",
+                "taint-engine:sparse", "taint-flow-limit:1");
+    }
+
+    @Test
+    public void testWitnesses() {
+        Tests.testCSPTA(DIR, "StringAppend",
+                "taint-config:src/test/resources/pta/taint/taint-config.yml",
+                "taint-witness-limit:100000");
+    }
+
+    @Test
+    public void testBoundedWitnesses() {
+        // the witness table is full after two arrivals, which truncates
+        // the witness paths, but does not affect the detected flows
+        Tests.testCSPTA(DIR, "StringAppend",
+                "taint-config:src/test/resources/pta/taint/taint-config.yml",
+                "taint-witness-limit:2");
+    }
+
     @Test
     public void testArgToResult() {
         Tests.testCSPTA(DIR, "ArgToResult",
@@ -59,6 +178,15 @@ public class TaintTest {
                 "cs:1-call;taint-config:src/test/resources/pta/taint/taint-config.yml");
     }
 
+    @Test
+    public void testContextSink() {
+        // under 1-call, the sink call in Forwarder.forward() is checked per
+        // context, thus taint (passed with SafePrinter) is not reported,
+        // which a check on the context-insensitive projection would report
+        Tests.testCSPTA(DIR, "ContextSink",
+                "cs:1-call;taint-config:src/test/resources/pta/taint/context-sink-config.yml");
+    }
+
     @Test
     public void testInterTaintTransfer() {
         Tests.testCSPTA(DIR, "InterTaintTransfer",
@@ -0,0 +1,32 @@
+class ContextSink {
+
+    public static void main(String[] args) {
+        String taint = SourceSink.source();
+        String taint2 = SourceSink.source();
+        String clean = new String();
+        Forwarder.forward(new SafePrinter(), taint); // no taint
+        Forwarder.forward(new UnsafePrinter(), clean); // no taint
+        Forwarder.forward(new UnsafePrinter(), taint2); // taint
+    }
+}
+
+class Forwarder {
+
+    static void forward(Printer p, String s) {
+        p.print(s);
+    }
+}
+
+interface Printer {
+    void print(String s);
+}
+
+class SafePrinter implements Printer {
+    public void print(String s) {
+    }
+}
+
+class UnsafePrinter implements Printer {
+    public void print(String s) {
+    }
+}
@@ -0,0 +1,20 @@
+class ElementTransfer {
+
+    public static void main(String[] args) {
+        String s = SourceSink.source();
+        Box b = new Box();
+        b.put(s);
+        String t = b.get();
+        SourceSink.sink(t); // taint
+    }
+}
+
+class Box {
+
+    void put(String v) {
+    }
+
+    String get() {
+        return null;
+    }
+}
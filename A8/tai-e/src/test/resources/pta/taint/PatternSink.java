@@ -0,0 +1,24 @@
+class PatternSink {
+
+    public static void main(String[] args) {
+        String s = SourceSink.source();
+        Logger l1 = new FileLogger();
+        l1.log(s); // taint
+        Logger l2 = new ConsoleLogger();
+        l2.log(s); // taint
+    }
+}
+
+interface Logger {
+    void log(String msg);
+}
+
+class FileLogger implements Logger {
+    public void log(String msg) {
+    }
+}
+
+class ConsoleLogger implements Logger {
+    public void log(String msg) {
+    }
+}
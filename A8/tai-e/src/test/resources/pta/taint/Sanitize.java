@@ -0,0 +1,31 @@
+class Sanitize {
+
+    public static void main(String[] args) {
+        String s1 = SourceSink.source();
+        String c1 = Sanitizers.escape(s1);
+        SourceSink.sink(c1); // no taint
+
+        String s2 = SourceSink.source();
+        Sanitizers.check(s2); // no taint in check()
+        SourceSink.sink(s2); // taint
+
+        String s3 = SourceSink.source();
+        String c3 = Sanitizers.id(s3);
+        SourceSink.sink(c3); // taint
+    }
+}
+
+class Sanitizers {
+
+    static String escape(String s) {
+        return s;
+    }
+
+    static void check(String s) {
+        SourceSink.sink(s);
+    }
+
+    static String id(String s) {
+        return s;
+    }
+}